@@ -0,0 +1,140 @@
+package me.ele.backviewlayout.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import me.ele.backviewlayout.core.DragGesture;
+
+/**
+ * Throughput of {@link DragGesture} on synthetic event streams. Each benchmark
+ * replays one whole gesture and counts its input events as operations, so
+ * scores read as events per second and, with the GC profiler, allocation per
+ * event. The *AndReturn variants also step the spring back to rest, which
+ * shows up as fewer events per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DragGestureBenchmark {
+
+    private static final float TOUCH_SLOP = 16;
+    private static final float TRIGGER_DISTANCE = 300;
+    private static final float FRAME_SECONDS = 1f / 60f;
+    // input at 120Hz, frames at 60Hz
+    private static final long EVENT_INTERVAL_MILLIS = 8;
+    private static final int EVENTS_PER_FRAME = 2;
+
+    private static final int DRAG_MOVES = 120;
+    private static final int FLING_MOVES = 12;
+    private static final int MULTI_POINTER_MOVES = 120;
+
+    private final DragGesture mGesture = new DragGesture();
+    private final float[] mDragY = new float[DRAG_MOVES];
+    private final float[] mFlingY = new float[FLING_MOVES];
+    private final float[] mMultiY = new float[MULTI_POINTER_MOVES];
+
+    @Setup
+    public void setUp() {
+        mGesture.setTouchSlop(TOUCH_SLOP);
+        mGesture.setTriggerDistance(TRIGGER_DISTANCE);
+        mGesture.setMaxVelocity(8000);
+        for (int i = 0; i < DRAG_MOVES; i++) {
+            // slow pull with a little jitter, well past twice the trigger distance
+            mDragY[i] = 100 + i * 6.3f + (i % 3) * .4f;
+        }
+        for (int i = 0; i < FLING_MOVES; i++) {
+            mFlingY[i] = 100 + i * 45f;
+        }
+        for (int i = 0; i < MULTI_POINTER_MOVES; i++) {
+            mMultiY[i] = 100 + i * 3.7f;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DRAG_MOVES + 2)
+    public void drag(Blackhole blackhole) {
+        replay(mDragY, blackhole);
+        blackhole.consume(mGesture.reset());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLING_MOVES + 2)
+    public void fling(Blackhole blackhole) {
+        replay(mFlingY, blackhole);
+        blackhole.consume(mGesture.reset());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DRAG_MOVES + 2)
+    public void dragAndReturn(Blackhole blackhole) {
+        replay(mDragY, blackhole);
+        while (mGesture.isReturning()) {
+            blackhole.consume(mGesture.stepReturn(FRAME_SECONDS));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLING_MOVES + 2)
+    public void flingAndReturn(Blackhole blackhole) {
+        replay(mFlingY, blackhole);
+        while (mGesture.isReturning()) {
+            blackhole.consume(mGesture.stepReturn(FRAME_SECONDS));
+        }
+    }
+
+    /**
+     * Two pointers move at once; only the first drives the gesture until the
+     * second one goes down, which releases it as a pointer-down does.
+     */
+    @Benchmark
+    @OperationsPerInvocation(2 * MULTI_POINTER_MOVES + 3)
+    public void multiPointer(Blackhole blackhole) {
+        long time = 0;
+        mGesture.onDown(0, mMultiY[0], time);
+        for (int i = 0; i < MULTI_POINTER_MOVES; i++) {
+            time += EVENT_INTERVAL_MILLIS;
+            mGesture.onMove(0, mMultiY[i], time);
+            mGesture.onMove(1, mMultiY[i] * .5f, time);
+            if (i % EVENTS_PER_FRAME == 0) {
+                blackhole.consume(mGesture.applyPendingDelta(time));
+            }
+            if (i == MULTI_POINTER_MOVES / 2) {
+                blackhole.consume(mGesture.onRelease(time));
+                mGesture.onDown(1, mMultiY[i], time);
+            }
+        }
+        blackhole.consume(mGesture.onRelease(time));
+        blackhole.consume(mGesture.reset());
+    }
+
+    private void replay(float[] moves, Blackhole blackhole) {
+        long time = 0;
+        mGesture.onDown(0, 0, time);
+        for (int i = 0; i < moves.length; i++) {
+            time += EVENT_INTERVAL_MILLIS;
+            mGesture.addHistoricalSample(moves[i] - 1, time - EVENT_INTERVAL_MILLIS / 2);
+            mGesture.onMove(0, moves[i], time);
+            if (i % EVENTS_PER_FRAME == 0) {
+                blackhole.consume(mGesture.applyPendingDelta(time));
+            }
+        }
+        mGesture.applyPendingDelta(time);
+        mGesture.startReturn(mGesture.onRelease(time));
+    }
+
+}
@@ -0,0 +1,302 @@
+package me.ele.backviewlayout.core;
+
+/**
+ * The platform-free state machine behind a pull-to-reveal gesture: touch slop
+ * detection, clamped and damped offset updates with sub-pixel carry, the idle
+ * timeout and the spring back to rest. Everything goes in and out as
+ * primitives, so it can be driven and measured without a device.
+ * <p/>
+ * Move deltas are collected by {@link #onMove} and only applied by
+ * {@link #applyPendingDelta}, so the caller decides how often the content
+ * actually moves, typically once per frame.
+ */
+public final class DragGesture {
+
+    public static final int INVALID_POINTER = -1;
+    /**
+     * Returned by {@link #getIdleDeadline()} when no return is due.
+     */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    public static final int STATE_IDLE = 0;
+    public static final int STATE_DRAGGING = 1;
+    public static final int STATE_RETURNING = 2;
+
+    public static final float DEFAULT_DAMPING_FACTOR = .2f;
+    public static final long DEFAULT_IDLE_TIMEOUT = 300;
+
+    private float mTouchSlop;
+    private float mTriggerDistance = -1;
+    private float mDampingFactor = DEFAULT_DAMPING_FACTOR;
+    private long mIdleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private float mMaxVelocity = Float.MAX_VALUE;
+
+    private final Spring mSpring = new Spring();
+    private final VelocityEstimator mVelocity = new VelocityEstimator();
+
+    private int mState = STATE_IDLE;
+    private int mActivePointerId = INVALID_POINTER;
+    private float mInitialY;
+    private float mLastY;
+    private float mPendingDelta;
+    private long mPendingEventTime;
+    private int mOffset;
+    private float mRemainder;
+    private long mIdleDeadline = NO_DEADLINE;
+
+    public void setTouchSlop(float touchSlop) {
+        mTouchSlop = touchSlop;
+    }
+
+    /**
+     * @param distance the distance the pull is measured against, -1 if unknown;
+     *                 past twice this distance only the damping factor of the
+     *                 pull still moves the content
+     */
+    public void setTriggerDistance(float distance) {
+        mTriggerDistance = distance;
+    }
+
+    public float getTriggerDistance() {
+        return mTriggerDistance;
+    }
+
+    /**
+     * @param factor how much of the pull still moves the content past twice
+     *               the trigger distance
+     */
+    public void setDampingFactor(float factor) {
+        mDampingFactor = factor;
+    }
+
+    public void setIdleTimeout(long millis) {
+        mIdleTimeout = millis;
+    }
+
+    public void setMaxVelocity(float velocity) {
+        mMaxVelocity = velocity;
+    }
+
+    public Spring getSpring() {
+        return mSpring;
+    }
+
+    /**
+     * @return the current offset of the content from rest, in px
+     */
+    public int getOffset() {
+        return mOffset;
+    }
+
+    public int getState() {
+        return mState;
+    }
+
+    public boolean isDragging() {
+        return mState == STATE_DRAGGING;
+    }
+
+    public int getActivePointerId() {
+        return mActivePointerId;
+    }
+
+    /**
+     * @return the uptime at which an idle drag should return, or {@link #NO_DEADLINE}
+     */
+    public long getIdleDeadline() {
+        return mIdleDeadline;
+    }
+
+    /**
+     * A first pointer went down. Stops a return in progress where it is.
+     *
+     * @return whether the content is already pulled, in which case the drag
+     * continues right away without waiting for the touch slop
+     */
+    public boolean onDown(int pointerId, float y, long timeMillis) {
+        stopReturn();
+        mActivePointerId = pointerId;
+        mInitialY = mLastY = y;
+        mPendingDelta = 0;
+        mVelocity.clear();
+        mVelocity.add(y, timeMillis);
+        mState = mOffset > 0 ? STATE_DRAGGING : STATE_IDLE;
+        return mState == STATE_DRAGGING;
+    }
+
+    /**
+     * Feeds a batched sample that precedes the next {@link #onMove}; only used
+     * for the release velocity.
+     */
+    public void addHistoricalSample(float y, long timeMillis) {
+        mVelocity.add(y, timeMillis);
+    }
+
+    /**
+     * The active pointer moved.
+     *
+     * @return whether the content is being dragged
+     */
+    public boolean onMove(int pointerId, float y, long timeMillis) {
+        if (pointerId != mActivePointerId || mActivePointerId == INVALID_POINTER) {
+            return mState == STATE_DRAGGING;
+        }
+        mVelocity.add(y, timeMillis);
+        if (mState != STATE_DRAGGING) {
+            if (y - mInitialY > mTouchSlop) {
+                // the pull starts here, the slop itself does not move the content
+                mState = STATE_DRAGGING;
+                mLastY = y;
+            }
+            return mState == STATE_DRAGGING;
+        }
+        if (mPendingDelta == 0) {
+            mPendingEventTime = timeMillis;
+        }
+        mPendingDelta += y - mLastY;
+        mLastY = y;
+        return true;
+    }
+
+    /**
+     * @return the time of the oldest move not applied yet
+     */
+    public long getPendingEventTime() {
+        return mPendingEventTime;
+    }
+
+    /**
+     * Applies the moves collected since the last call and moves the idle
+     * deadline.
+     *
+     * @param nowMillis the current uptime
+     * @return how far the content has to move, in px
+     */
+    public int applyPendingDelta(long nowMillis) {
+        final float delta = mPendingDelta;
+        if (delta == 0) {
+            return 0;
+        }
+        mPendingDelta = 0;
+        final int change = pull(delta);
+        if (delta < 0 && mOffset == 0) {
+            mIdleDeadline = NO_DEADLINE;
+        } else {
+            mIdleDeadline = nowMillis + mIdleTimeout;
+        }
+        return change;
+    }
+
+    /**
+     * Moves the content by {@code delta} px, never above rest and damped past
+     * twice the trigger distance, if one is set. Fractions of a pixel are carried over to the
+     * next call.
+     *
+     * @return how far the content has to move, in px
+     */
+    public int pull(float delta) {
+        final float current = mOffset + mRemainder;
+        final float next = current + delta;
+        if (next <= 0) {
+            delta = -current;
+        } else if (mTriggerDistance > 0 && next > 2 * mTriggerDistance && delta > 0) {
+            delta *= mDampingFactor;
+        }
+        final float exact = mRemainder + delta;
+        final int change = (int) exact;
+        mRemainder = exact - change;
+        mOffset += change;
+        return change;
+    }
+
+    /**
+     * Moves the idle deadline to one idle timeout from {@code nowMillis}.
+     */
+    public void touchIdleDeadline(long nowMillis) {
+        mIdleDeadline = nowMillis + mIdleTimeout;
+    }
+
+    /**
+     * The active pointer went up, the gesture was cancelled or another pointer
+     * went down. Pending moves should have been applied before.
+     *
+     * @return the release velocity in px/s, positive away from rest; 0 if the
+     * content was not being dragged
+     */
+    public float onRelease(long timeMillis) {
+        float velocity = 0;
+        if (mState == STATE_DRAGGING) {
+            velocity = Math.max(-mMaxVelocity, Math.min(mMaxVelocity, mVelocity.getVelocity()));
+        }
+        mState = STATE_IDLE;
+        mActivePointerId = INVALID_POINTER;
+        mPendingDelta = 0;
+        mRemainder = 0;
+        mIdleDeadline = mOffset > 0 ? timeMillis : NO_DEADLINE;
+        return velocity;
+    }
+
+    /**
+     * Starts the spring back to rest from the current offset.
+     */
+    public void startReturn(float velocity) {
+        mState = STATE_RETURNING;
+        mIdleDeadline = NO_DEADLINE;
+        mRemainder = 0;
+        mSpring.start(mOffset, velocity);
+    }
+
+    /**
+     * Advances the return by one frame.
+     *
+     * @return how far the content has to move, in px
+     */
+    public int stepReturn(float seconds) {
+        if (mState != STATE_RETURNING) {
+            return 0;
+        }
+        final boolean running = mSpring.step(seconds);
+        final int next = running ? Math.round(mSpring.getPosition()) : 0;
+        final int change = next - mOffset;
+        mOffset = next;
+        if (!running) {
+            mState = STATE_IDLE;
+        }
+        return change;
+    }
+
+    public boolean isReturning() {
+        return mState == STATE_RETURNING;
+    }
+
+    /**
+     * Stops a return in progress, leaving the content where it is.
+     *
+     * @return whether a return was stopped
+     */
+    public boolean stopReturn() {
+        if (mState != STATE_RETURNING) {
+            return false;
+        }
+        mSpring.stop();
+        mState = STATE_IDLE;
+        return true;
+    }
+
+    /**
+     * Puts the content back at rest at once.
+     *
+     * @return how far the content has to move, in px
+     */
+    public int reset() {
+        stopReturn();
+        final int change = -mOffset;
+        mOffset = 0;
+        mRemainder = 0;
+        mPendingDelta = 0;
+        mState = STATE_IDLE;
+        mActivePointerId = INVALID_POINTER;
+        mIdleDeadline = NO_DEADLINE;
+        return change;
+    }
+}
@@ -0,0 +1,110 @@
+package me.ele.backviewlayout.core;
+
+/**
+ * A damped spring pulling a position back to 0. Integrated in small fixed
+ * sub-steps so the result does not depend on the frame rate; holds no
+ * per-step state other than primitives.
+ */
+public final class Spring {
+
+    /**
+     * Stiffness in 1/s^2; sqrt(400) = 20 rad/s settles a critically damped
+     * spring in roughly 350ms.
+     */
+    public static final float DEFAULT_STIFFNESS = 400f;
+    public static final float DEFAULT_DAMPING_RATIO = 1f;
+
+    private static final float MAX_SUB_STEP = 1f / 240f;
+    private static final float MAX_FRAME_STEP = 1f / 20f;
+    private static final float REST_DISPLACEMENT = 0.5f;
+    private static final float REST_VELOCITY = 20f;
+
+    private float mStiffness = DEFAULT_STIFFNESS;
+    private float mDampingRatio = DEFAULT_DAMPING_RATIO;
+
+    private float mPosition;
+    private float mVelocity;
+    private boolean mRunning;
+
+    public void setStiffness(float stiffness) {
+        mStiffness = stiffness;
+    }
+
+    public void setDampingRatio(float dampingRatio) {
+        mDampingRatio = dampingRatio;
+    }
+
+    /**
+     * @param from     start position in px
+     * @param velocity start velocity in px/s, positive away from rest
+     */
+    public void start(float from, float velocity) {
+        mPosition = from;
+        mVelocity = velocity;
+        mRunning = true;
+    }
+
+    public void stop() {
+        mRunning = false;
+        mVelocity = 0;
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    public float getPosition() {
+        return mPosition;
+    }
+
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    /**
+     * @return the start velocity that carries the spring from rest out to
+     * {@code peak} before it turns back
+     */
+    public float getVelocityForPeak(float peak) {
+        // the sub-steps are linear in the start velocity: find the peak
+        // they reach from 1px/s, the closed form overshoots them by ~15%
+        final float damping = 2f * mDampingRatio * (float) Math.sqrt(mStiffness);
+        float position = 0;
+        float velocity = 1;
+        while (velocity > 0) {
+            velocity += (-mStiffness * position - damping * velocity) * MAX_SUB_STEP;
+            position += velocity * MAX_SUB_STEP;
+        }
+        return position > 0 ? peak / position : 0;
+    }
+
+    /**
+     * Advances the spring.
+     *
+     * @param seconds time since the previous step
+     * @return whether the spring is still moving
+     */
+    public boolean step(float seconds) {
+        if (!mRunning) {
+            return false;
+        }
+        float remaining = Math.min(seconds, MAX_FRAME_STEP);
+        final float damping = 2f * mDampingRatio * (float) Math.sqrt(mStiffness);
+        while (remaining > 0) {
+            final float dt = Math.min(remaining, MAX_SUB_STEP);
+            // semi-implicit Euler: update velocity first, then position
+            mVelocity += (-mStiffness * mPosition - damping * mVelocity) * dt;
+            mPosition += mVelocity * dt;
+            remaining -= dt;
+        }
+        if (mPosition <= 0) {
+            // the content never travels past its resting place
+            mPosition = 0;
+            stop();
+        } else if (mPosition < REST_DISPLACEMENT && Math.abs(mVelocity) < REST_VELOCITY) {
+            mPosition = 0;
+            stop();
+        }
+        return mRunning;
+    }
+}
@@ -0,0 +1,77 @@
+package me.ele.backviewlayout.core;
+
+/**
+ * Estimates the velocity of a pointer along one axis from its recent samples,
+ * as the slope of a least-squares line through the samples of the last
+ * {@link #HORIZON_MILLIS}. Samples live in a fixed ring buffer.
+ */
+public final class VelocityEstimator {
+
+    static final long HORIZON_MILLIS = 100;
+    private static final int CAPACITY = 20;
+
+    private final float[] mPositions = new float[CAPACITY];
+    private final long[] mTimes = new long[CAPACITY];
+    private int mNext;
+    private int mSize;
+
+    public void clear() {
+        mNext = 0;
+        mSize = 0;
+    }
+
+    /**
+     * @param position   the position in px
+     * @param timeMillis the time of the sample; samples must come in order
+     */
+    public void add(float position, long timeMillis) {
+        mPositions[mNext] = position;
+        mTimes[mNext] = timeMillis;
+        mNext = (mNext + 1) % CAPACITY;
+        if (mSize < CAPACITY) {
+            mSize++;
+        }
+    }
+
+    /**
+     * @return the velocity in px/s, 0 with fewer than two recent samples
+     */
+    public float getVelocity() {
+        if (mSize < 2) {
+            return 0;
+        }
+        final int newest = (mNext + CAPACITY - 1) % CAPACITY;
+        final long newestTime = mTimes[newest];
+        // means first, relative to the newest sample to keep the sums small
+        int count = 0;
+        double sumT = 0;
+        double sumX = 0;
+        for (int i = 0; i < mSize; i++) {
+            final int index = (newest + CAPACITY - i) % CAPACITY;
+            final long age = newestTime - mTimes[index];
+            if (age > HORIZON_MILLIS) {
+                break;
+            }
+            sumT -= age;
+            sumX += mPositions[index];
+            count++;
+        }
+        if (count < 2) {
+            return 0;
+        }
+        final double meanT = sumT / count;
+        final double meanX = sumX / count;
+        double covariance = 0;
+        double variance = 0;
+        for (int i = 0; i < count; i++) {
+            final int index = (newest + CAPACITY - i) % CAPACITY;
+            final double t = -(double) (newestTime - mTimes[index]) - meanT;
+            covariance += t * (mPositions[index] - meanX);
+            variance += t * t;
+        }
+        if (variance == 0) {
+            return 0;
+        }
+        return (float) (covariance / variance * 1000);
+    }
+}
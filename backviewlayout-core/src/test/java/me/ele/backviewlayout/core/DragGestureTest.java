@@ -0,0 +1,175 @@
+package me.ele.backviewlayout.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DragGestureTest {
+
+    private static final float TOUCH_SLOP = 8;
+    private static final float TRIGGER_DISTANCE = 100;
+
+    private DragGesture gesture;
+
+    @Before
+    public void setUp() {
+        gesture = new DragGesture();
+        gesture.setTouchSlop(TOUCH_SLOP);
+        gesture.setTriggerDistance(TRIGGER_DISTANCE);
+    }
+
+    @Test
+    public void slopDoesNotMoveContent() {
+        assertFalse(gesture.onDown(0, 0, 0));
+        assertFalse(gesture.onMove(0, TOUCH_SLOP, 10));
+        assertEquals(0, gesture.applyPendingDelta(10));
+
+        assertTrue(gesture.onMove(0, 20, 20));
+        assertEquals(0, gesture.applyPendingDelta(20));
+        assertTrue(gesture.onMove(0, 30, 30));
+        assertEquals(10, gesture.applyPendingDelta(30));
+        assertEquals(10, gesture.getOffset());
+    }
+
+    @Test
+    public void upwardMoveDoesNotStartDrag() {
+        gesture.onDown(0, 100, 0);
+        assertFalse(gesture.onMove(0, 50, 10));
+        assertEquals(DragGesture.STATE_IDLE, gesture.getState());
+    }
+
+    @Test
+    public void ignoresOtherPointers() {
+        gesture.onDown(0, 0, 0);
+        assertFalse(gesture.onMove(1, 50, 10));
+        assertTrue(gesture.onMove(0, 50, 10));
+    }
+
+    @Test
+    public void movesAreCollectedUntilApplied() {
+        drag(30);
+        gesture.onMove(0, 60, 1020);
+        gesture.onMove(0, 75, 1030);
+        assertEquals(1020, gesture.getPendingEventTime());
+        assertEquals(25, gesture.applyPendingDelta(1030));
+        assertEquals(0, gesture.applyPendingDelta(1040));
+    }
+
+    @Test
+    public void dampedPastTwiceTriggerDistance() {
+        assertEquals(200, gesture.pull(200));
+        assertEquals(10, gesture.pull(50));
+        // moving back is never damped
+        assertEquals(-50, gesture.pull(-50));
+    }
+
+    @Test
+    public void notDampedWithoutTriggerDistance() {
+        gesture.setTriggerDistance(-1);
+        assertEquals(1, gesture.pull(1));
+        assertEquals(500, gesture.pull(500));
+    }
+
+    @Test
+    public void clampedAtRest() {
+        gesture.pull(40);
+        assertEquals(-40, gesture.pull(-100));
+        assertEquals(0, gesture.getOffset());
+        assertEquals(0, gesture.pull(-10));
+    }
+
+    @Test
+    public void carriesFractions() {
+        assertEquals(0, gesture.pull(.6f));
+        assertEquals(1, gesture.pull(.6f));
+        assertEquals(1, gesture.getOffset());
+    }
+
+    @Test
+    public void idleDeadlineFollowsMoves() {
+        gesture.setIdleTimeout(300);
+        assertEquals(DragGesture.NO_DEADLINE, gesture.getIdleDeadline());
+        drag(50);
+        assertEquals(1300, gesture.getIdleDeadline());
+        // back at rest: nothing to return
+        gesture.onMove(0, 0, 1100);
+        gesture.applyPendingDelta(1100);
+        assertEquals(0, gesture.getOffset());
+        assertEquals(DragGesture.NO_DEADLINE, gesture.getIdleDeadline());
+    }
+
+    @Test
+    public void releaseVelocityIsClamped() {
+        gesture.setMaxVelocity(1000);
+        gesture.onDown(0, 0, 0);
+        for (int i = 1; i <= 10; i++) {
+            gesture.onMove(0, 20 * i, 8 * i);
+        }
+        gesture.applyPendingDelta(80);
+        assertEquals(1000, gesture.onRelease(80), 0);
+        assertEquals(DragGesture.STATE_IDLE, gesture.getState());
+        assertEquals(DragGesture.INVALID_POINTER, gesture.getActivePointerId());
+        // pulled: the return is due right away
+        assertEquals(80, gesture.getIdleDeadline());
+    }
+
+    @Test
+    public void releaseWithoutDragHasNoVelocity() {
+        gesture.onDown(0, 0, 0);
+        gesture.onMove(0, 4, 8);
+        assertEquals(0, gesture.onRelease(16), 0);
+        assertEquals(DragGesture.NO_DEADLINE, gesture.getIdleDeadline());
+    }
+
+    @Test
+    public void returnsToRest() {
+        drag(80);
+        gesture.onRelease(1000);
+        gesture.startReturn(0);
+        assertTrue(gesture.isReturning());
+        int offset = gesture.getOffset();
+        for (int i = 0; i < 120 && gesture.isReturning(); i++) {
+            offset += gesture.stepReturn(1 / 60f);
+            assertEquals(gesture.getOffset(), offset);
+            assertTrue(offset >= 0);
+        }
+        assertFalse(gesture.isReturning());
+        assertEquals(0, gesture.getOffset());
+    }
+
+    @Test
+    public void downStopsReturnWhereItIs() {
+        drag(80);
+        gesture.onRelease(1000);
+        gesture.startReturn(0);
+        gesture.stepReturn(1 / 60f);
+        final int offset = gesture.getOffset();
+        assertTrue(offset > 0);
+        // caught mid-flight: dragged again without the slop
+        assertTrue(gesture.onDown(0, 0, 1100));
+        assertEquals(offset, gesture.getOffset());
+        assertEquals(0, gesture.stepReturn(1 / 60f));
+    }
+
+    @Test
+    public void resetPutsContentAtRest() {
+        drag(80);
+        assertEquals(-80, gesture.reset());
+        assertEquals(0, gesture.getOffset());
+        assertEquals(DragGesture.STATE_IDLE, gesture.getState());
+        assertEquals(DragGesture.NO_DEADLINE, gesture.getIdleDeadline());
+    }
+
+    /**
+     * Drags the content {@code offset} px down, past the slop, at 1000ms.
+     */
+    private void drag(int offset) {
+        gesture.onDown(0, 0, 0);
+        gesture.onMove(0, 20, 10);
+        gesture.onMove(0, 20 + offset, 1000);
+        assertEquals(offset, gesture.applyPendingDelta(1000));
+    }
+}
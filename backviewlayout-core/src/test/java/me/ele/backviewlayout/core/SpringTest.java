@@ -0,0 +1,72 @@
+package me.ele.backviewlayout.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SpringTest {
+
+    private static final float FRAME_SECONDS = 1 / 60f;
+
+    @Test
+    public void settlesAtRest() {
+        final Spring spring = new Spring();
+        spring.start(200, 0);
+        int frames = 0;
+        while (spring.step(FRAME_SECONDS)) {
+            assertTrue(spring.getPosition() > 0);
+            frames++;
+            assertTrue(frames < 60);
+        }
+        assertEquals(0, spring.getPosition(), 0);
+        assertEquals(0, spring.getVelocity(), 0);
+        assertFalse(spring.isRunning());
+    }
+
+    @Test
+    public void neverPassesRest() {
+        final Spring spring = new Spring();
+        spring.setDampingRatio(.2f);
+        spring.start(200, -5000);
+        while (spring.step(FRAME_SECONDS)) {
+            assertTrue(spring.getPosition() > 0);
+        }
+        assertEquals(0, spring.getPosition(), 0);
+    }
+
+    @Test
+    public void independentOfFrameRate() {
+        final Spring slow = new Spring();
+        final Spring fast = new Spring();
+        slow.start(200, 0);
+        fast.start(200, 0);
+        for (int i = 0; i < 6; i++) {
+            slow.step(FRAME_SECONDS);
+            fast.step(FRAME_SECONDS / 2);
+            fast.step(FRAME_SECONDS / 2);
+            assertEquals(slow.getPosition(), fast.getPosition(), .5f);
+        }
+    }
+
+    @Test
+    public void velocityForPeakReachesPeak() {
+        final Spring spring = new Spring();
+        spring.start(0, spring.getVelocityForPeak(100));
+        float peak = 0;
+        while (spring.step(FRAME_SECONDS / 4)) {
+            peak = Math.max(peak, spring.getPosition());
+        }
+        assertEquals(100, peak, 2);
+    }
+
+    @Test
+    public void stoppedSpringDoesNotMove() {
+        final Spring spring = new Spring();
+        spring.start(100, 0);
+        spring.stop();
+        assertFalse(spring.step(FRAME_SECONDS));
+        assertEquals(100, spring.getPosition(), 0);
+    }
+}
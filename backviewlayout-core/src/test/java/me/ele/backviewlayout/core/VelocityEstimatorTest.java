@@ -0,0 +1,50 @@
+package me.ele.backviewlayout.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class VelocityEstimatorTest {
+
+    @Test
+    public void needsTwoSamples() {
+        final VelocityEstimator estimator = new VelocityEstimator();
+        assertEquals(0, estimator.getVelocity(), 0);
+        estimator.add(10, 0);
+        assertEquals(0, estimator.getVelocity(), 0);
+        estimator.add(20, 10);
+        assertEquals(1000, estimator.getVelocity(), 1);
+    }
+
+    @Test
+    public void ignoresSamplesPastHorizon() {
+        final VelocityEstimator estimator = new VelocityEstimator();
+        float position = 0;
+        for (long time = 0; time <= 200; time += 10) {
+            estimator.add(position, time);
+            // 3px/ms first, then 1px/ms for the last horizon
+            position += time < 200 - VelocityEstimator.HORIZON_MILLIS ? 30 : 10;
+        }
+        assertEquals(1000, estimator.getVelocity(), 1);
+    }
+
+    @Test
+    public void keepsNewestSamplesWhenFull() {
+        final VelocityEstimator estimator = new VelocityEstimator();
+        // more samples than the ring holds, all within the horizon
+        for (int i = 0; i < 50; i++) {
+            estimator.add(i < 30 ? 0 : (i - 30) * 2, i);
+        }
+        assertEquals(2000, estimator.getVelocity(), 1);
+    }
+
+    @Test
+    public void clearDropsSamples() {
+        final VelocityEstimator estimator = new VelocityEstimator();
+        estimator.add(0, 0);
+        estimator.add(100, 10);
+        estimator.clear();
+        estimator.add(0, 20);
+        assertEquals(0, estimator.getVelocity(), 0);
+    }
+}
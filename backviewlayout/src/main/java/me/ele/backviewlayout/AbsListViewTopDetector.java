@@ -0,0 +1,18 @@
+package me.ele.backviewlayout;
+
+import android.view.View;
+import android.widget.AbsListView;
+
+/**
+ * {@link ChildTopDetector} for {@link AbsListView} targets such as ListView and GridView.
+ */
+public class AbsListViewTopDetector extends ScrollChangeTopDetector {
+
+    @Override
+    protected boolean computeChildAtTop(View target) {
+        final AbsListView absListView = (AbsListView) target;
+        return absListView.getChildCount() == 0
+                || (absListView.getFirstVisiblePosition() == 0
+                && absListView.getChildAt(0).getTop() >= absListView.getPaddingTop());
+    }
+}
@@ -0,0 +1,273 @@
+package me.ele.backviewlayout;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.util.DisplayMetrics;
+import android.util.SparseArray;
+import android.view.ViewConfiguration;
+
+import me.ele.backviewlayout.core.DragGesture;
+import me.ele.backviewlayout.core.Spring;
+
+/**
+ * The tuning values of a {@link BackViewLayout}: how far the content has to
+ * move before a drag starts, how pulling is damped, when and how it returns.
+ * A config is immutable, so one instance is shared by every layout it is set
+ * on.
+ * <p/>
+ * {@link #get(Context)} returns the defaults for the screen density of a
+ * context, looked up once per density and shared by all layouts without
+ * tuning attributes. Other values are set with the tuning attributes of
+ * BackViewLayout in XML, or with a {@link Builder} and
+ * {@link BackViewLayout#setConfig}.
+ */
+public final class BackViewConfig {
+
+    /**
+     * The fraction of the parent size the trigger distance is limited to
+     * when there is no back view to take it from.
+     */
+    public static final float DEFAULT_MAX_SWIPE_DISTANCE_FACTOR = .6f;
+    /**
+     * The trigger distance when there is no back view to take it from, in dp.
+     */
+    public static final int DEFAULT_TRIGGER_DISTANCE_DIP = 120;
+
+    // defaults by screen density, only touched on the UI thread
+    private static final SparseArray<BackViewConfig> sDefaults = new SparseArray<BackViewConfig>();
+
+    private final int mTouchSlop;
+    private final int mMaxVelocity;
+    private final long mIdleTimeout;
+    private final float mDampingFactor;
+    private final float mMaxSwipeDistanceFactor;
+    private final int mTriggerDistance;
+    private final float mReturnStiffness;
+    private final float mReturnDampingRatio;
+
+    private BackViewConfig(Builder builder) {
+        mTouchSlop = builder.mTouchSlop;
+        mMaxVelocity = builder.mMaxVelocity;
+        mIdleTimeout = builder.mIdleTimeout;
+        mDampingFactor = builder.mDampingFactor;
+        mMaxSwipeDistanceFactor = builder.mMaxSwipeDistanceFactor;
+        mTriggerDistance = builder.mTriggerDistance;
+        mReturnStiffness = builder.mReturnStiffness;
+        mReturnDampingRatio = builder.mReturnDampingRatio;
+    }
+
+    /**
+     * @return the default config for the screen density of {@code context}.
+     * Must be called on the UI thread.
+     */
+    public static BackViewConfig get(Context context) {
+        final DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        BackViewConfig config = sDefaults.get(metrics.densityDpi);
+        if (config == null) {
+            final ViewConfiguration configuration = ViewConfiguration.get(context);
+            final Builder builder = new Builder();
+            builder.mTouchSlop = configuration.getScaledTouchSlop();
+            builder.mMaxVelocity = configuration.getScaledMaximumFlingVelocity();
+            builder.mTriggerDistance = (int) (DEFAULT_TRIGGER_DISTANCE_DIP * metrics.density);
+            config = builder.build();
+            sDefaults.put(metrics.densityDpi, config);
+        }
+        return config;
+    }
+
+    /**
+     * @return the default config of {@code context} with the tuning
+     * attributes of {@code a} applied, or the default itself when there are
+     * none
+     */
+    static BackViewConfig fromAttributes(Context context, TypedArray a) {
+        final BackViewConfig config = get(context);
+        if (!a.hasValue(R.styleable.BackViewLayout_touchSlop)
+                && !a.hasValue(R.styleable.BackViewLayout_idleTimeout)
+                && !a.hasValue(R.styleable.BackViewLayout_dragDampingFactor)
+                && !a.hasValue(R.styleable.BackViewLayout_maxSwipeDistanceFactor)
+                && !a.hasValue(R.styleable.BackViewLayout_triggerDistance)
+                && !a.hasValue(R.styleable.BackViewLayout_returnStiffness)
+                && !a.hasValue(R.styleable.BackViewLayout_returnDampingRatio)) {
+            return config;
+        }
+        return config.buildUpon()
+                .setTouchSlop(a.getDimensionPixelSize(R.styleable.BackViewLayout_touchSlop, config.mTouchSlop))
+                .setIdleTimeout(a.getInt(R.styleable.BackViewLayout_idleTimeout, (int) config.mIdleTimeout))
+                .setDampingFactor(a.getFloat(R.styleable.BackViewLayout_dragDampingFactor, config.mDampingFactor))
+                .setMaxSwipeDistanceFactor(a.getFloat(R.styleable.BackViewLayout_maxSwipeDistanceFactor,
+                        config.mMaxSwipeDistanceFactor))
+                .setTriggerDistance(a.getDimensionPixelSize(R.styleable.BackViewLayout_triggerDistance,
+                        config.mTriggerDistance))
+                .setReturnStiffness(a.getFloat(R.styleable.BackViewLayout_returnStiffness, config.mReturnStiffness))
+                .setReturnDampingRatio(a.getFloat(R.styleable.BackViewLayout_returnDampingRatio,
+                        config.mReturnDampingRatio))
+                .build();
+    }
+
+    /**
+     * @return a builder starting from the values of this config
+     */
+    public Builder buildUpon() {
+        return new Builder(this);
+    }
+
+    public int getTouchSlop() {
+        return mTouchSlop;
+    }
+
+    public int getMaxVelocity() {
+        return mMaxVelocity;
+    }
+
+    public long getIdleTimeout() {
+        return mIdleTimeout;
+    }
+
+    public float getDampingFactor() {
+        return mDampingFactor;
+    }
+
+    public float getMaxSwipeDistanceFactor() {
+        return mMaxSwipeDistanceFactor;
+    }
+
+    public int getTriggerDistance() {
+        return mTriggerDistance;
+    }
+
+    public float getReturnStiffness() {
+        return mReturnStiffness;
+    }
+
+    public float getReturnDampingRatio() {
+        return mReturnDampingRatio;
+    }
+
+    public static final class Builder {
+
+        private int mTouchSlop;
+        private int mMaxVelocity;
+        private long mIdleTimeout = DragGesture.DEFAULT_IDLE_TIMEOUT;
+        private float mDampingFactor = DragGesture.DEFAULT_DAMPING_FACTOR;
+        private float mMaxSwipeDistanceFactor = DEFAULT_MAX_SWIPE_DISTANCE_FACTOR;
+        private int mTriggerDistance;
+        private float mReturnStiffness = Spring.DEFAULT_STIFFNESS;
+        private float mReturnDampingRatio = Spring.DEFAULT_DAMPING_RATIO;
+
+        private Builder() {
+        }
+
+        /**
+         * Starts from the default config of {@code context}.
+         */
+        public Builder(Context context) {
+            this(get(context));
+        }
+
+        public Builder(BackViewConfig config) {
+            mTouchSlop = config.mTouchSlop;
+            mMaxVelocity = config.mMaxVelocity;
+            mIdleTimeout = config.mIdleTimeout;
+            mDampingFactor = config.mDampingFactor;
+            mMaxSwipeDistanceFactor = config.mMaxSwipeDistanceFactor;
+            mTriggerDistance = config.mTriggerDistance;
+            mReturnStiffness = config.mReturnStiffness;
+            mReturnDampingRatio = config.mReturnDampingRatio;
+        }
+
+        /**
+         * @param touchSlop how far a pointer moves before a drag starts, in pixels
+         */
+        public Builder setTouchSlop(int touchSlop) {
+            checkNotNegative("touchSlop", touchSlop);
+            mTouchSlop = touchSlop;
+            return this;
+        }
+
+        /**
+         * @param velocity the release velocity the return starts with at most,
+         *                 in pixels per second
+         */
+        public Builder setMaxVelocity(int velocity) {
+            checkNotNegative("maxVelocity", velocity);
+            mMaxVelocity = velocity;
+            return this;
+        }
+
+        /**
+         * @param millis how long the content may stay pulled without any drag
+         *               activity before it returns on its own
+         */
+        public Builder setIdleTimeout(long millis) {
+            checkNotNegative("idleTimeout", millis);
+            mIdleTimeout = millis;
+            return this;
+        }
+
+        /**
+         * @param factor how much of the pull still moves the content past
+         *               twice the trigger distance, from 0 to 1
+         */
+        public Builder setDampingFactor(float factor) {
+            if (!(factor >= 0 && factor <= 1)) {
+                throw new IllegalArgumentException("dampingFactor must be between 0 and 1: " + factor);
+            }
+            mDampingFactor = factor;
+            return this;
+        }
+
+        /**
+         * @param factor the fraction of the parent size the trigger distance is
+         *               limited to when there is no back view to take it from
+         */
+        public Builder setMaxSwipeDistanceFactor(float factor) {
+            checkNotNegative("maxSwipeDistanceFactor", factor);
+            mMaxSwipeDistanceFactor = factor;
+            return this;
+        }
+
+        /**
+         * @param distance the trigger distance when there is no back view to
+         *                 take it from, in pixels
+         */
+        public Builder setTriggerDistance(int distance) {
+            checkNotNegative("triggerDistance", distance);
+            mTriggerDistance = distance;
+            return this;
+        }
+
+        /**
+         * @param stiffness the stiffness of the spring that returns the content
+         */
+        public Builder setReturnStiffness(float stiffness) {
+            if (!(stiffness > 0)) {
+                throw new IllegalArgumentException("returnStiffness must be positive: " + stiffness);
+            }
+            mReturnStiffness = stiffness;
+            return this;
+        }
+
+        /**
+         * @param dampingRatio the damping ratio of the spring that returns the
+         *                     content, 1 returns without overshooting
+         */
+        public Builder setReturnDampingRatio(float dampingRatio) {
+            if (!(dampingRatio > 0)) {
+                throw new IllegalArgumentException("returnDampingRatio must be positive: " + dampingRatio);
+            }
+            mReturnDampingRatio = dampingRatio;
+            return this;
+        }
+
+        public BackViewConfig build() {
+            return new BackViewConfig(this);
+        }
+
+        private static void checkNotNegative(String name, float value) {
+            if (!(value >= 0)) {
+                throw new IllegalArgumentException(name + " must not be negative: " + value);
+            }
+        }
+    }
+}
@@ -16,149 +16,419 @@
 
 package me.ele.backviewlayout;
 
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.support.v4.view.MotionEventCompat;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
-import android.util.DisplayMetrics;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
-import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.view.animation.Animation;
-import android.view.animation.Animation.AnimationListener;
-import android.view.animation.Interpolator;
-import android.view.animation.Transformation;
+import android.view.ViewTreeObserver;
+import android.webkit.WebView;
 import android.widget.AbsListView;
+import android.widget.ScrollView;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import me.ele.backviewlayout.core.DragGesture;
 
 
 public class BackViewLayout extends ViewGroup {
     private static final String LOG_TAG = BackViewLayout.class.getSimpleName();
 
-    private static final long RETURN_TO_ORIGINAL_POSITION_TIMEOUT = 300;
-    private static final float MAX_SWIPE_DISTANCE_FACTOR = .6f;
-    private static final int REFRESH_TRIGGER_DISTANCE = 120;
-    private static final int INVALID_POINTER = -1;
+    private static final int INVALID_POINTER = DragGesture.INVALID_POINTER;
+    private static final float DEFAULT_FRAME_SECONDS = 1f / 60f;
 
     private View mTarget; //the content that gets pulled down
-    private int mOriginalOffsetTop;
-    private int mTouchSlop;
+    private final DragGesture mGesture = new DragGesture();
     private float mDistanceToTriggerSync = -1;
-    private int mMediumAnimationDuration;
-    private int mCurrentTargetOffsetTop;
+    private int mCurrentTargetOffset;
+
+    /**
+     * The content can be pulled down from the top edge.
+     */
+    public static final int EDGE_TOP = 1;
+    /**
+     * The content can be pulled up from the bottom edge.
+     */
+    public static final int EDGE_BOTTOM = 1 << 1;
+    /**
+     * The content can be pulled away from the start edge, left in LTR.
+     */
+    public static final int EDGE_START = 1 << 2;
+    /**
+     * The content can be pulled away from the end edge, right in LTR.
+     */
+    public static final int EDGE_END = 1 << 3;
+    private static final int EDGE_COUNT = 4;
 
+    // the back views by edge index, and the one of the edge being pulled
+    private final View[] mBackViews = new View[EDGE_COUNT];
     private View mBackView;
+    private int mEnabledEdges = EDGE_TOP;
+    private int mActiveEdge = EDGE_TOP;
+    // edges a gesture that has not picked a direction yet may still pull
+    private int mCandidateEdges;
+    private float mInitialDownX;
+    private float mInitialDownY;
+    private long mInitialDownTime;
+    private int mInitialPointerId = INVALID_POINTER;
+    private int mOffsetMode = OFFSET_LAYOUT;
+    // shift applied to the event being dispatched in OFFSET_CANVAS mode
+    private float mTouchShiftX;
+    private float mTouchShiftY;
+    // the gesture went down on the strip the content exposes and goes to the back view
+    private boolean mTouchOnBackView;
+    private BackViewConfig mConfig;
+    private int mTouchSlop;
+    private ChildTopDetector mTopDetector;
 
-    private float mInitialMotionY;
-    private float mLastMotionY;
-    private boolean mIsBeingDragged;
-    private int mActivePointerId = INVALID_POINTER;
+    private final DragFrameCallback mDragFrameCallback = new DragFrameCallback();
+    private boolean mNestedScrollInProgress;
+    private final int[] mParentScrollConsumed = new int[2];
+    private final int[] mParentOffsetInWindow = new int[2];
     private boolean layouted;
 
     // Target is returning to its start offset because it was cancelled or a
     // refresh was triggered.
     private boolean mReturning;
-    private static final Interpolator S_INTERPOLATOR = new Interpolator() {
-        public float getInterpolation(float t) {
-            t -= 1.0f;
-            return t * t * t * t * t + 1.0f;
-        }
-    };
 
-    private static final int[] LAYOUT_ATTRS = new int[]{
-            android.R.attr.enabled, R.attr.backViewLayout
-    };
+    /**
+     * Inflate the back view in the constructor.
+     */
+    public static final int INFLATE_EAGER = 0;
+    /**
+     * Inflate the back view on the UI thread when the content is first pulled.
+     */
+    public static final int INFLATE_ON_DRAG = 1;
+    /**
+     * Inflate the back view on a background thread after the first layout and
+     * attach it on the UI thread; a pull that comes first inflates it in place.
+     */
+    public static final int INFLATE_ASYNC = 2;
 
+    /**
+     * Move the content by offsetting its layout bounds.
+     */
+    public static final int OFFSET_LAYOUT = 0;
+    /**
+     * Move the content with its translation, which the render thread applies
+     * without redrawing it. Falls back to {@link #OFFSET_LAYOUT} before
+     * Honeycomb.
+     */
+    public static final int OFFSET_TRANSLATION = 1;
+    /**
+     * Leave the content in place and translate the canvas it is drawn with;
+     * touches are shifted to match.
+     */
+    public static final int OFFSET_CANVAS = 2;
 
-    private class ReturnToStartPositionRunnable implements Runnable {
+    /**
+     * The content is at rest.
+     */
+    public static final int STATE_IDLE = DragGesture.STATE_IDLE;
+    /**
+     * The content is pulled, or about to be, by a touch or nested scroll.
+     */
+    public static final int STATE_DRAGGING = DragGesture.STATE_DRAGGING;
+    /**
+     * The content is returning to rest on its own.
+     */
+    public static final int STATE_RETURNING = DragGesture.STATE_RETURNING;
 
-        private final AnimationListener mReturnToStartPositionListener = new BaseAnimationListener() {
-            @Override
-            public void onAnimationEnd(Animation animation) {
-                // Once the target content has returned to its start position, reset
-                // the target offset to 0
-                mCurrentTargetOffsetTop = 0;
-                mReturning = false;
-            }
-        };
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private static final String INFLATE_THREAD_NAME = "BackViewLayout-inflate";
+    private static Executor sInflateExecutor;
 
-        private class AnimateToStartPosition extends Animation {
+    private final int[] mBackViewLayoutIds = {-1, -1, -1, -1};
+    private int mBackViewInflation = INFLATE_EAGER;
+    private boolean mAsyncInflationStarted;
+    // bumped on detach: back views inflated in the background before are dropped
+    private int mAttachGeneration;
+    // -1 is not a valid measure spec, so the first pass always measures
+    private int mLastWidthMeasureSpec = -1;
+    private int mLastHeightMeasureSpec = -1;
 
-            private int from;
-            private AtomicBoolean stoped;
+    // while the offset is 0 the back view is fully covered: it is not drawn,
+    // hidden from accessibility, and its measure and layout wait for the reveal
+    private boolean mBackViewRevealed;
+    // edges whose back view skipped a measure or layout while covered
+    private int mStaleEdges;
 
-            public AnimateToStartPosition() {
-                stoped = new AtomicBoolean(false);
-            }
+    private boolean mBackViewCacheEnabled;
+    private boolean mBackViewCached;
 
-            public void reset() {
-                super.reset();
-                stoped.set(false);
-            }
+    private GestureMetricsRecorder mMetricsRecorder;
+    private HotPathGuard mHotPathGuard;
+    private GestureTraceRecorder mTraceRecorder;
+
+    private final ArrayList<RevealLayer> mRevealLayers = new ArrayList<RevealLayer>();
+
+    private static final OnRevealChangeListener[] NO_REVEAL_LISTENERS = new OnRevealChangeListener[0];
+    // replaced on add and remove, so dispatching neither copies nor allocates
+    private OnRevealChangeListener[] mRevealListeners = NO_REVEAL_LISTENERS;
+    private final RevealDispatcher mRevealDispatcher = new RevealDispatcher();
+
+    /**
+     * Follows how far the content is pulled, e.g. to tint the status bar with
+     * the pull.
+     */
+    public interface OnRevealChangeListener {
+
+        /**
+         * Called on the UI thread before a frame is drawn, at most once per
+         * frame and only when something changed since the last call.
+         *
+         * @param offset   how far the content is pulled away from its edge, in pixels
+         * @param progress the offset as a fraction of the trigger distance, which
+         *                 is the back view size; may go beyond 1
+         * @param state    one of {@link #STATE_IDLE}, {@link #STATE_DRAGGING} and
+         *                 {@link #STATE_RETURNING}
+         */
+        void onRevealChanged(BackViewLayout layout, int offset, float progress, int state);
+    }
+
+    /**
+     * Hands the reveal state to the listeners from the pre-draw pass, so all
+     * the offset changes of a frame, from however many move events, animation
+     * steps or nested scrolls, end up in one call.
+     */
+    private class RevealDispatcher implements ViewTreeObserver.OnPreDrawListener {
 
-            public void stop() {
-                stoped.set(true);
+        private ViewTreeObserver mObserver;
+        private boolean mChanged;
+        private int mLastOffset;
+        private int mLastState = STATE_IDLE;
+
+        public void register() {
+            if (mObserver == null && mRevealListeners.length > 0 && getWindowToken() != null) {
+                mObserver = getViewTreeObserver();
+                mObserver.addOnPreDrawListener(this);
             }
+        }
 
-            public void setFromPosition(int from) {
-                this.from = from;
+        public void unregister() {
+            if (mObserver != null) {
+                if (mObserver.isAlive()) {
+                    mObserver.removeOnPreDrawListener(this);
+                }
+                mObserver = null;
             }
+        }
 
+        public void onChanged() {
+            mChanged = true;
+        }
 
-            @Override
-            public void applyTransformation(float interpolatedTime, Transformation t) {
-                if (!stoped.get()) {
-                    int targetTop = (from + (int) ((mOriginalOffsetTop - from) * interpolatedTime));
-                    int offset = targetTop - mTarget.getTop();
-                    final int currentTop = mTarget.getTop();
-                    int nextTop = offset + currentTop;
-                    if (nextTop < 0) {
-                        offset = 0 - currentTop;
-                    }
-                    setTargetOffsetTopAndBottom(offset);
-                }
+        @Override
+        public boolean onPreDraw() {
+            if (!mChanged) {
+                return true;
+            }
+            mChanged = false;
+            final int state = getRevealState();
+            if (mCurrentTargetOffset == mLastOffset && state == mLastState) {
+                return true;
             }
+            mLastOffset = mCurrentTargetOffset;
+            mLastState = state;
+            final float progress = mDistanceToTriggerSync > 0 ? mCurrentTargetOffset / mDistanceToTriggerSync : 0;
+            final OnRevealChangeListener[] listeners = mRevealListeners;
+            for (int i = 0; i < listeners.length; i++) {
+                listeners[i].onRevealChanged(BackViewLayout.this, mCurrentTargetOffset, progress, state);
+            }
+            return true;
+        }
+    }
+
+    private BackViewPool mBackViewPool;
+    // a ComponentCallbacks2 on API 14+, registered while attached
+    private ComponentCallbacks mTrimMemoryCallbacks;
+    private OnBindBackViewListener mOnBindBackViewListener;
+    private CharSequence mBackViewText;
+    private final BackViewTextListener mBackViewTextListener = new BackViewTextListener();
+
+    /**
+     * Fills a back view with the content of one layout, e.g. the host of the
+     * page shown in it. Needed when the back view comes from a
+     * {@link BackViewPool} and so may have been shown by another layout before.
+     */
+    public interface OnBindBackViewListener {
+
+        /**
+         * Called on the UI thread when {@code backView} is attached to
+         * {@code layout}, before it is revealed.
+         *
+         * @param edge the edge the back view is shown at, e.g. {@link #EDGE_TOP}
+         */
+        void onBindBackView(BackViewLayout layout, View backView, int edge);
+    }
+
+
+    /**
+     * Drives the target back to its start offset with the spring of the
+     * {@link DragGesture}, one step per frame. Starts from the release velocity
+     * and can be stopped mid-flight, leaving the target wherever it is.
+     */
+    private class ReturnToStartPositionRunnable implements Runnable, FrameScheduler.Task {
+
+        private float mStartVelocity;
+        private int mTrigger = GestureMetrics.RETURN_RELEASE;
+        private long mLastFrameTimeNanos;
+        private boolean mPosted;
+
+        public void setStartVelocity(float velocity) {
+            mStartVelocity = velocity;
         }
 
-        private AnimateToStartPosition mAnimateToStartPosition = new AnimateToStartPosition();
+        public void setTrigger(int trigger) {
+            mTrigger = trigger;
+        }
 
         @Override
         public void run() {
+            mPosted = false;
             ensureTarget();
             mReturning = true;
-            animateOffsetToStartPosition(mCurrentTargetOffsetTop + getPaddingTop(), mReturnToStartPositionListener);
+            mRevealDispatcher.onChanged();
+            mGesture.startReturn(mStartVelocity);
+            mStartVelocity = 0;
+            mLastFrameTimeNanos = 0;
+            if (mMetricsRecorder != null) {
+                mMetricsRecorder.onReturnStart(mTrigger);
+            }
+            mTrigger = GestureMetrics.RETURN_RELEASE;
+            FrameScheduler.getInstance().schedule(this);
+        }
+
+        @Override
+        public boolean doFrame(long frameTimeNanos) {
+            if (!mGesture.isReturning()) {
+                return false;
+            }
+            final float seconds = mLastFrameTimeNanos == 0
+                    ? DEFAULT_FRAME_SECONDS : (frameTimeNanos - mLastFrameTimeNanos) / 1e9f;
+            mLastFrameTimeNanos = frameTimeNanos;
+
+            offsetTarget(mGesture.stepReturn(seconds));
+            if (mGesture.isReturning()) {
+                return true;
+            }
+            // the target content is back at its start position
+            mReturning = false;
+            mRevealDispatcher.onChanged();
+            recycleBackViews();
+            if (mHotPathGuard != null) {
+                mHotPathGuard.stop();
+            }
+            return false;
         }
 
-        private void animateOffsetToStartPosition(int from, AnimationListener listener) {
-            mAnimateToStartPosition.reset();
-            mAnimateToStartPosition.setDuration(mMediumAnimationDuration);
-            mAnimateToStartPosition.setInterpolator(S_INTERPOLATOR);
-            mAnimateToStartPosition.setFromPosition(from);
-            mAnimateToStartPosition.setAnimationListener(listener);
-            mTarget.startAnimation(mAnimateToStartPosition);
+        public void post() {
+            mPosted = true;
+            postRunnable(this);
         }
 
         public void cancel() {
-            removeCallbacks(this);
-            mAnimateToStartPosition.stop();
+            if (mPosted) {
+                mPosted = false;
+                cancelRunnable(this);
+            }
+            if (mGesture.stopReturn()) {
+                FrameScheduler.getInstance().cancel(this);
+                if (mMetricsRecorder != null) {
+                    mMetricsRecorder.onReturnInterrupted();
+                }
+            }
+            mReturning = false;
+            mRevealDispatcher.onChanged();
         }
     }
 
+    /**
+     * Returns the target once the idle deadline of the gesture has passed.
+     * Activity only moves the deadline forward; the single pending message
+     * re-arms itself for the remainder when it fires early, so a drag costs a
+     * few message queue operations instead of one per event.
+     */
     private class CancelPullRunnable implements Runnable {
 
+        private boolean mPosted;
+        private boolean mFireNow;
+
         @Override
         public void run() {
+            mPosted = false;
+            if (!mFireNow) {
+                final long deadline = mGesture.getIdleDeadline();
+                if (deadline == DragGesture.NO_DEADLINE) {
+                    return;
+                }
+                final long remaining = deadline - SystemClock.uptimeMillis();
+                if (remaining > 0) {
+                    schedule(remaining);
+                    return;
+                }
+            }
+            returnToStartPositionRunnable.setTrigger(mFireNow
+                    ? GestureMetrics.RETURN_RELEASE : GestureMetrics.RETURN_IDLE_TIMEOUT);
+            mFireNow = false;
             mReturning = true;
+            mRevealDispatcher.onChanged();
             animateToFinished();
         }
 
+        /**
+         * Makes sure a message is pending for the idle deadline of the gesture.
+         */
+        public void touch() {
+            if (!mPosted && !mFireNow) {
+                final long deadline = mGesture.getIdleDeadline();
+                if (deadline != DragGesture.NO_DEADLINE) {
+                    schedule(Math.max(0, deadline - SystemClock.uptimeMillis()));
+                }
+            }
+        }
+
+        /**
+         * Returns the target on the next message, e.g. after a release.
+         */
+        public void fireNow() {
+            if (mPosted) {
+                removeCallbacks(this);
+            }
+            mFireNow = true;
+            schedule(0);
+        }
+
         public void cancel() {
-            removeCallbacks(this);
+            mFireNow = false;
+            if (mPosted) {
+                mPosted = false;
+                removeCallbacks(this);
+            }
+        }
+
+        private void schedule(long delay) {
+            mPosted = true;
+            postDelayed(this, delay);
         }
 
     }
@@ -185,30 +455,29 @@ public class BackViewLayout extends ViewGroup {
     public BackViewLayout(Context context, AttributeSet attrs) {
         super(context, attrs);
 
-        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
-
-        mMediumAnimationDuration = getResources().getInteger(
-                android.R.integer.config_longAnimTime);
-
         setWillNotDraw(false);
-
-        final TypedArray a = context.obtainStyledAttributes(attrs, LAYOUT_ATTRS);
-        setEnabled(a.getBoolean(0, true));
-        int mRefreshViewLayoutId = a.getResourceId(1, -1);
-        if (mRefreshViewLayoutId > 0) {
-            mBackView = LayoutInflater.from(context).inflate(mRefreshViewLayoutId, this, false);
-        } else {
-            mBackView = LayoutInflater.from(getContext()).inflate(R.layout.default_back_view, this, false);
-            mBackView.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            // passes what it does not take on to a scrolling parent
+            setNestedScrollingEnabled(true);
         }
-        addView(mBackView);
+
+        final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.BackViewLayout);
+        setEnabled(a.getBoolean(R.styleable.BackViewLayout_android_enabled, true));
+        mBackViewLayoutIds[edgeIndex(EDGE_TOP)] = a.getResourceId(R.styleable.BackViewLayout_backViewLayout, -1);
+        mBackViewLayoutIds[edgeIndex(EDGE_BOTTOM)] = a.getResourceId(R.styleable.BackViewLayout_bottomBackViewLayout, -1);
+        mBackViewLayoutIds[edgeIndex(EDGE_START)] = a.getResourceId(R.styleable.BackViewLayout_startBackViewLayout, -1);
+        mBackViewLayoutIds[edgeIndex(EDGE_END)] = a.getResourceId(R.styleable.BackViewLayout_endBackViewLayout, -1);
+        mEnabledEdges = a.getInt(R.styleable.BackViewLayout_revealEdges, EDGE_TOP);
+        mBackViewInflation = a.getInt(R.styleable.BackViewLayout_backViewInflation, INFLATE_EAGER);
+        mBackViewCacheEnabled = a.getBoolean(R.styleable.BackViewLayout_backViewCache, false);
+        setOffsetMode(a.getInt(R.styleable.BackViewLayout_offsetMode, OFFSET_LAYOUT));
+        applyConfig(BackViewConfig.fromAttributes(context, a));
         a.recycle();
-        ViewLayoutObserver.whenLayoutFinished(this, new Runnable() {
-            @Override
-            public void run() {
-                layouted = true;
+        if (mBackViewInflation == INFLATE_EAGER) {
+            for (int i = 0; i < EDGE_COUNT; i++) {
+                ensureBackView(1 << i);
             }
-        });
+        }
     }
 
 
@@ -216,6 +485,46 @@ public class BackViewLayout extends ViewGroup {
     public void onAttachedToWindow() {
         super.onAttachedToWindow();
         removeCallbacks();
+        mRevealDispatcher.register();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            if (mTrimMemoryCallbacks == null) {
+                mTrimMemoryCallbacks = new TrimMemoryCallbacks();
+            }
+            getContext().getApplicationContext().registerComponentCallbacks(mTrimMemoryCallbacks);
+        }
+        if (mTarget != null && mTopDetector != null) {
+            mTopDetector.attach(mTarget);
+        }
+    }
+
+    /**
+     * Replaces the detector that tells whether the content is scrolled to its
+     * top. By default one is picked from the type of the content view.
+     *
+     * @param detector the detector to use, or null for the default one
+     */
+    public void setChildTopDetector(ChildTopDetector detector) {
+        if (mTopDetector != null && mTarget != null) {
+            mTopDetector.detach(mTarget);
+        }
+        mTopDetector = detector;
+        if (mTarget != null) {
+            if (mTopDetector == null) {
+                mTopDetector = createDefaultTopDetector(mTarget);
+            }
+            if (getWindowToken() != null) {
+                mTopDetector.attach(mTarget);
+            }
+        }
+    }
+
+    private static ChildTopDetector createDefaultTopDetector(View target) {
+        if (target instanceof AbsListView) {
+            return new AbsListViewTopDetector();
+        } else if (target instanceof ScrollView || target instanceof WebView) {
+            return new ScrollYTopDetector();
+        }
+        return new CanScrollVerticallyTopDetector();
     }
 
     private void removeCallbacks() {
@@ -226,258 +535,1561 @@ public class BackViewLayout extends ViewGroup {
     @Override
     public void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        mAttachGeneration++;
+        // started again by the first layout after the layout is attached again
+        mAsyncInflationStarted = false;
         removeCallbacks();
+        mDragFrameCallback.cancel();
+        mRevealDispatcher.unregister();
+        if (mCurrentTargetOffset == 0) {
+            recycleBackViews();
+        }
+        ViewLayoutObserver.clear(this);
+        if (mTrimMemoryCallbacks != null) {
+            getContext().getApplicationContext().unregisterComponentCallbacks(mTrimMemoryCallbacks);
+        }
+        if (mMetricsRecorder != null) {
+            mMetricsRecorder.stop();
+        }
+        if (mHotPathGuard != null) {
+            mHotPathGuard.stop();
+        }
+        if (mTarget != null && mTopDetector != null) {
+            mTopDetector.detach(mTarget);
+        }
+        if (mTouchOnBackView) {
+            cancelBackViewTouch();
+        }
     }
 
-    private void postRunnable(final Runnable runnable) {
-        if (layouted) {
-            post(runnable);
-        } else {
-            ViewLayoutObserver.whenLayoutFinished(this, new Runnable() {
-                @Override
-                public void run() {
-                    layouted = true;
-                    post(runnable);
-                }
-            });
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (visibility != VISIBLE) {
+            snapToRest();
         }
     }
 
-    private void animateToFinished() {
-        removeCallbacks();
-        postRunnable(returnToStartPositionRunnable);
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (visibility != VISIBLE) {
+            snapToRest();
+        }
     }
 
     /**
-     * @return Whether the SwipeRefreshWidget is actively showing refresh
-     * progress.
+     * Puts the content back at rest at once and stops all work scheduled for
+     * the gesture, e.g. when the layout is hidden in the middle of one.
      */
-
-    private void ensureTarget() {
-        // Don't bother getting the parent height if the parent hasn't been laid out yet.
+    private void snapToRest() {
+        // also called from the View constructor, before the fields are set
         if (mTarget == null) {
-            checkChild();
-            mTarget = getChildAt(1);
-            mOriginalOffsetTop = mTarget.getTop() + getPaddingTop();
+            return;
         }
-        if (mDistanceToTriggerSync == -1) {
-            if (mBackView != null) {
-                mDistanceToTriggerSync = mBackView.getMeasuredHeight();
-                return;
-            }
-            if (getParent() != null && ((View) getParent()).getHeight() > 0) {
-                final DisplayMetrics metrics = getResources().getDisplayMetrics();
-                mDistanceToTriggerSync = (int) Math.min(
-                        ((View) getParent()).getHeight() * MAX_SWIPE_DISTANCE_FACTOR,
-                        REFRESH_TRIGGER_DISTANCE * metrics.density);
-            }
+        removeCallbacks();
+        mDragFrameCallback.cancel();
+        mGesture.reset();
+        offsetTarget(-mCurrentTargetOffset);
+        if (mMetricsRecorder != null) {
+            mMetricsRecorder.stop();
+        }
+        if (mHotPathGuard != null) {
+            mHotPathGuard.stop();
         }
+        recycleBackViews();
     }
 
-    @Override
-    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        final int width = getMeasuredWidth();
-        final int height = getMeasuredHeight();
-        if (getChildCount() == 0) {
-            return;
+    /**
+     * Drops the back views of a layout at rest when memory runs low; they are
+     * created again on the next drag.
+     */
+    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+    private class TrimMemoryCallbacks implements ComponentCallbacks2 {
+
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                onLowMemory();
+            }
         }
 
-        final int childLeft = getPaddingLeft();
-        final int childTop = mCurrentTargetOffsetTop + getPaddingTop();
-        final int childWidth = width - getPaddingLeft() - getPaddingRight();
-        final int childHeight = height - getPaddingTop() - getPaddingBottom();
+        @Override
+        public void onLowMemory() {
+            if (mCurrentTargetOffset == 0 && !mReturning && !mGesture.isDragging()) {
+                releaseBackViews();
+            }
+        }
 
-        mBackView.layout(childLeft, childTop
-                , childLeft + mBackView.getMeasuredWidth(), childTop + mBackView.getMeasuredHeight());
-        View content = getChildAt(1);
-        if (content != null) {
-            content.layout(childLeft, childTop, childLeft + childWidth, childTop + childHeight);
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
         }
     }
 
-    @Override
-    public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        measureChildren(widthMeasureSpec, heightMeasureSpec);
-        ensureTarget();
+    private void postRunnable(Runnable runnable) {
+        if (layouted) {
+            post(runnable);
+        } else {
+            // queued at most once, however often it is requested before layout
+            ViewLayoutObserver.whenLayoutFinished(this, runnable);
+        }
     }
 
-    private void checkChild() {
-        if (((mBackView == null && getChildCount() > 1) || (mBackView != null && getChildCount() > 2)) && !isInEditMode()) {
-            throw new IllegalStateException(getClass().getSimpleName() + " can host only one direct child");
-        }
+    private void cancelRunnable(Runnable runnable) {
+        removeCallbacks(runnable);
+        ViewLayoutObserver.cancel(this, runnable);
     }
 
     /**
-     * @return Whether it is possible for the child view of this layout to
-     * scroll up. Override this if the child view is a custom view.
+     * Reports per-gesture performance stats to {@code sink}. Costs nothing
+     * while no sink is set, and does not allocate per frame while one is.
+     *
+     * @param sink the sink to report to, or null to stop collecting
      */
-    private boolean canChildScrollUp() {
-        if (android.os.Build.VERSION.SDK_INT < 14) {
-            if (mTarget instanceof AbsListView) {
-                final AbsListView absListView = (AbsListView) mTarget;
-                return absListView.getChildCount() > 0
-                        && (absListView.getFirstVisiblePosition() > 0 || absListView.getChildAt(0)
-                        .getTop() < absListView.getPaddingTop());
-            } else {
-                return mTarget.getScrollY() > 0;
-            }
-        } else {
-            return ViewCompat.canScrollVertically(mTarget, -1);
+    public void setGestureMetricsSink(GestureMetricsSink sink) {
+        if (mMetricsRecorder != null) {
+            mMetricsRecorder.stop();
         }
+        mMetricsRecorder = sink != null ? new GestureMetricsRecorder(this, sink) : null;
     }
 
-    @Override
-    public boolean onInterceptTouchEvent(MotionEvent ev) {
-        ensureTarget();
-        final int action = MotionEventCompat.getActionMasked(ev);
-
-
-        if (!isEnabled() || mReturning || canChildScrollUp() || !canDrag) {
-            // Fail fast if we're not in a state where a swipe is possible
-            return false;
+    /**
+     * Records every touch event dispatched to this layout into {@code recorder}.
+     * Ignored unless the application is debuggable.
+     *
+     * @param recorder the recorder to write to, or null to stop recording
+     */
+    public void setGestureTraceRecorder(GestureTraceRecorder recorder) {
+        if (recorder != null
+                && (getContext().getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) == 0) {
+            Log.w(LOG_TAG, "Gesture traces are only recorded in debuggable builds");
+            return;
         }
+        mTraceRecorder = recorder;
+    }
 
-        switch (action) {
-            case MotionEvent.ACTION_DOWN:
-                mLastMotionY = mInitialMotionY = ev.getY();
-                mActivePointerId = MotionEventCompat.getPointerId(ev, 0);
-                mIsBeingDragged = false;
-                break;
+    /**
+     * Hands layout requests, measure and layout passes, UI thread allocations
+     * and slow frames seen from the first touch of a reveal gesture until the
+     * content is back at rest to {@code policy}, see {@link HotPathPolicies}.
+     * Ignored unless the application is debuggable.
+     *
+     * @param policy the policy to report to, or null to stop watching
+     */
+    public void setHotPathPolicy(HotPathPolicy policy) {
+        if (policy != null
+                && (getContext().getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) == 0) {
+            Log.w(LOG_TAG, "The hot path is only watched in debuggable builds");
+            return;
+        }
+        if (mHotPathGuard != null) {
+            mHotPathGuard.stop();
+        }
+        mHotPathGuard = policy != null ? new HotPathGuard(this, policy) : null;
+    }
 
-            case MotionEvent.ACTION_MOVE:
-                if (mActivePointerId == INVALID_POINTER) {
-                    Log.e(LOG_TAG, "Got ACTION_MOVE event but don't have an active pointer id.");
-                    return false;
-                }
+    @Override
+    public void requestLayout() {
+        super.requestLayout();
+        if (mHotPathGuard != null) {
+            mHotPathGuard.onRequestLayout();
+        }
+    }
 
-                final int pointerIndex = MotionEventCompat.findPointerIndex(ev, mActivePointerId);
-                if (pointerIndex < 0) {
-                    Log.e(LOG_TAG, "Got ACTION_MOVE event but have an invalid active pointer id.");
-                    return false;
-                }
+    /**
+     * Starts telling {@code listener} how far the content is pulled.
+     */
+    public void addOnRevealChangeListener(OnRevealChangeListener listener) {
+        final OnRevealChangeListener[] listeners = new OnRevealChangeListener[mRevealListeners.length + 1];
+        System.arraycopy(mRevealListeners, 0, listeners, 0, mRevealListeners.length);
+        listeners[mRevealListeners.length] = listener;
+        mRevealListeners = listeners;
+        mRevealDispatcher.register();
+    }
 
-                final float y = MotionEventCompat.getY(ev, pointerIndex);
-                final float yDiff = y - mInitialMotionY;
-                if (yDiff > mTouchSlop) {
-                    mLastMotionY = y;
-                    mIsBeingDragged = true;
-                }
+    public void removeOnRevealChangeListener(OnRevealChangeListener listener) {
+        for (int i = 0; i < mRevealListeners.length; i++) {
+            if (mRevealListeners[i] == listener) {
+                final OnRevealChangeListener[] listeners = new OnRevealChangeListener[mRevealListeners.length - 1];
+                System.arraycopy(mRevealListeners, 0, listeners, 0, i);
+                System.arraycopy(mRevealListeners, i + 1, listeners, i, listeners.length - i);
+                mRevealListeners = listeners.length > 0 ? listeners : NO_REVEAL_LISTENERS;
                 break;
+            }
+        }
+        if (mRevealListeners.length == 0) {
+            mRevealDispatcher.unregister();
+        }
+    }
 
-            case MotionEventCompat.ACTION_POINTER_DOWN:
-            case MotionEvent.ACTION_UP:
-            case MotionEvent.ACTION_CANCEL:
-                mIsBeingDragged = false;
-                mActivePointerId = INVALID_POINTER;
-                break;
+    /**
+     * @return one of {@link #STATE_IDLE}, {@link #STATE_DRAGGING} and
+     * {@link #STATE_RETURNING}
+     */
+    public int getRevealState() {
+        if (mReturning) {
+            return STATE_RETURNING;
         }
+        return mCurrentTargetOffset > 0 || mGesture.isDragging() ? STATE_DRAGGING : STATE_IDLE;
+    }
 
-        return mIsBeingDragged;
+    /**
+     * @return the offset currently applied to the target, in pixels
+     */
+    int getCurrentOffset() {
+        return mCurrentTargetOffset;
     }
 
-    private boolean canDrag = true;
+    /**
+     * Sets how long the content may stay pulled without any drag activity
+     * before it returns on its own. Defaults to 300ms.
+     */
+    public void setIdleTimeout(long millis) {
+        setConfig(mConfig.buildUpon().setIdleTimeout(millis).build());
+    }
 
-    @Override
-    public void requestDisallowInterceptTouchEvent(boolean b) {
-        // Nope.
+    /**
+     * Chooses how the content is moved, one of {@link #OFFSET_LAYOUT},
+     * {@link #OFFSET_TRANSLATION} or {@link #OFFSET_CANVAS}. Only has an
+     * effect while the content is at rest.
+     */
+    public void setOffsetMode(int mode) {
+        if (mCurrentTargetOffset != 0) {
+            return;
+        }
+        if (mode == OFFSET_TRANSLATION && Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            mode = OFFSET_LAYOUT;
+        }
+        mOffsetMode = mode;
     }
 
-    @Override
-    public boolean onTouchEvent(MotionEvent ev) {
-        final int action = MotionEventCompat.getActionMasked(ev);
+    public int getOffsetMode() {
+        return mOffsetMode;
+    }
 
-        if (!isEnabled() || mReturning || canChildScrollUp() || !canDrag) {
-            // Fail fast if we're not in a state where a swipe is possible
-            return false;
+    /**
+     * Replaces the tuning values, e.g. with a config shared by the layouts of
+     * a screen. Defaults to {@link BackViewConfig#get} with the tuning
+     * attributes of the layout applied.
+     */
+    public void setConfig(BackViewConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("config == null");
         }
-        switch (action) {
+        applyConfig(config);
+        if (mCurrentTargetOffset == 0) {
+            mDistanceToTriggerSync = -1;
+            ensureTarget();
+        }
+    }
+
+    public BackViewConfig getConfig() {
+        return mConfig;
+    }
+
+    private void applyConfig(BackViewConfig config) {
+        mConfig = config;
+        mTouchSlop = config.getTouchSlop();
+        mGesture.setTouchSlop(mTouchSlop);
+        mGesture.setMaxVelocity(config.getMaxVelocity());
+        mGesture.setIdleTimeout(config.getIdleTimeout());
+        mGesture.setDampingFactor(config.getDampingFactor());
+        mGesture.getSpring().setStiffness(config.getReturnStiffness());
+        mGesture.getSpring().setDampingRatio(config.getReturnDampingRatio());
+    }
+
+    /**
+     * Chooses when the back view is inflated, one of {@link #INFLATE_EAGER},
+     * {@link #INFLATE_ON_DRAG} or {@link #INFLATE_ASYNC}. Only has an effect
+     * while the back view has not been inflated yet.
+     */
+    public void setBackViewInflation(int inflation) {
+        mBackViewInflation = inflation;
+    }
+
+    /**
+     * Chooses the edges the content can be pulled from, any combination of
+     * {@link #EDGE_TOP}, {@link #EDGE_BOTTOM}, {@link #EDGE_START} and
+     * {@link #EDGE_END}. Only the top edge has a default back view; the others
+     * show the background of this layout unless a back view layout is set for
+     * them. Takes effect from the next gesture.
+     */
+    public void setRevealEdges(int edges) {
+        mEnabledEdges = edges;
+    }
+
+    public int getRevealEdges() {
+        return mEnabledEdges;
+    }
+
+    /**
+     * Borrows the back views from {@code pool} instead of keeping them: they
+     * are attached when the content is pulled and handed back to the pool once
+     * it is at rest. Back views inflated before are handed to the pool right
+     * away, so set {@link #INFLATE_ON_DRAG} to skip inflating them at all.
+     * Ignored while the content is pulled.
+     *
+     * @param pool the pool to share, or null to keep the back views again
+     */
+    public void setBackViewPool(BackViewPool pool) {
+        if (mCurrentTargetOffset != 0) {
+            return;
+        }
+        mBackViewPool = pool;
+        recycleBackViews();
+    }
+
+    /**
+     * Shows {@code text} in the {@link TextLayoutView} with the id
+     * {@code back_view_text} of the back views, e.g. the host of the page for
+     * the first line of the default back view. The text is laid out on a
+     * background thread and shown before the back view is revealed, and a
+     * back view attached later gets it too.
+     */
+    public void setBackViewText(CharSequence text) {
+        mBackViewText = text;
+        for (int i = 0; i < EDGE_COUNT; i++) {
+            if (mBackViews[i] != null) {
+                final TextLayoutView textView = findBackViewText(mBackViews[i]);
+                if (textView != null) {
+                    textView.setTextAsync(text, getInflateExecutor(), MAIN_HANDLER, mBackViewTextListener);
+                }
+            }
+        }
+    }
+
+    private static TextLayoutView findBackViewText(View backView) {
+        final View view = backView.findViewById(R.id.back_view_text);
+        return view instanceof TextLayoutView ? (TextLayoutView) view : null;
+    }
+
+    /**
+     * @return the text {@code textView} had when it was first attached, before
+     * any layout set its own
+     */
+    private static CharSequence getInflatedText(TextLayoutView textView) {
+        CharSequence text = (CharSequence) textView.getTag(R.id.back_view_inflated_text);
+        if (text == null) {
+            text = textView.getText();
+            textView.setTag(R.id.back_view_inflated_text, text);
+        }
+        return text;
+    }
+
+    /**
+     * Measures and places a back view whose text changed height right away,
+     * rather than requesting a layout of the whole container.
+     */
+    private class BackViewTextListener implements TextLayoutView.OnTextLayoutListener {
+
+        @Override
+        public void onTextLayout(TextLayoutView view, boolean heightChanged) {
+            if (!heightChanged) {
+                return;
+            }
+            View child = view;
+            while (child.getParent() instanceof View && child.getParent() != BackViewLayout.this) {
+                child.forceLayout();
+                child = (View) child.getParent();
+            }
+            final int edge = edgeOf(child);
+            if (edge == 0) {
+                // handed back to the pool or removed meanwhile
+                view.requestLayout();
+                return;
+            }
+            child.forceLayout();
+            remeasureBackView(edge);
+        }
+    }
+
+    /**
+     * Sets the listener that fills every back view attached from now on. Back
+     * views already attached are bound right away.
+     */
+    public void setOnBindBackViewListener(OnBindBackViewListener listener) {
+        mOnBindBackViewListener = listener;
+        if (listener != null) {
+            for (int i = 0; i < EDGE_COUNT; i++) {
+                if (mBackViews[i] != null) {
+                    listener.onBindBackView(this, mBackViews[i], 1 << i);
+                }
+            }
+        }
+    }
+
+    private static int edgeIndex(int edge) {
+        return Integer.numberOfTrailingZeros(edge);
+    }
+
+    private boolean isVerticalEdge(int edge) {
+        return edge == EDGE_TOP || edge == EDGE_BOTTOM;
+    }
+
+    /**
+     * @return whether pulling from {@code edge} moves the target in the
+     * positive x or y direction
+     */
+    private boolean isPositiveEdge(int edge) {
+        if (isVerticalEdge(edge)) {
+            return edge == EDGE_TOP;
+        }
+        return (edge == EDGE_START) != isRtl();
+    }
+
+    private boolean isRtl() {
+        return ViewCompat.getLayoutDirection(this) == ViewCompat.LAYOUT_DIRECTION_RTL;
+    }
+
+    /**
+     * @return the edge a finger movement of {@code dx}, {@code dy} pulls the
+     * target away from, or 0 for no movement
+     */
+    private int edgeForDirection(float dx, float dy) {
+        if (dx == 0 && dy == 0) {
+            return 0;
+        }
+        if (Math.abs(dy) >= Math.abs(dx)) {
+            return dy > 0 ? EDGE_TOP : EDGE_BOTTOM;
+        }
+        return (dx > 0) != isRtl() ? EDGE_START : EDGE_END;
+    }
+
+    /**
+     * @return how far a finger movement of {@code dx}, {@code dy} pulls the
+     * target away from {@code edge}
+     */
+    private float projectOnEdge(int edge, float dx, float dy) {
+        final float distance = isVerticalEdge(edge) ? dy : dx;
+        return isPositiveEdge(edge) ? distance : -distance;
+    }
+
+    /**
+     * @return the edges the content is scrolled to and so can be pulled from
+     */
+    private int computeCandidateEdges() {
+        int edges = 0;
+        for (int edge = EDGE_TOP; edge <= EDGE_END; edge <<= 1) {
+            // reads the flags cached by the ChildTopDetector
+            if ((mEnabledEdges & edge) != 0 && mTopDetector.isChildAtEdge(edge)) {
+                edges |= edge;
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Makes {@code edge} the one the gesture pulls from. Only switches while
+     * the target is at rest.
+     */
+    private void setActiveEdge(int edge) {
+        if (edge == mActiveEdge || mCurrentTargetOffset != 0) {
+            return;
+        }
+        mActiveEdge = edge;
+        mBackView = mBackViews[edgeIndex(edge)];
+        mBackViewRevealed = false;
+        mDistanceToTriggerSync = -1;
+        ensureTarget();
+    }
+
+    private boolean isBackView(View child) {
+        return child != null && edgeOf(child) != 0;
+    }
+
+    /**
+     * @return the edge {@code child} is the back view of, or 0
+     */
+    private int edgeOf(View child) {
+        for (int i = 0; i < EDGE_COUNT; i++) {
+            if (mBackViews[i] == child) {
+                return 1 << i;
+            }
+        }
+        return 0;
+    }
+
+    private void ensureBackView(int edge) {
+        final int index = edgeIndex(edge);
+        if ((mEnabledEdges & edge) != 0 && mBackViews[index] == null
+                && (edge == EDGE_TOP || mBackViewLayoutIds[index] > 0)) {
+            View backView = mBackViewPool != null ? mBackViewPool.obtain(getBackViewLayoutId(edge)) : null;
+            if (backView == null) {
+                backView = inflateBackView(LayoutInflater.from(getContext()), edge);
+            }
+            attachBackView(edge, backView);
+        }
+    }
+
+    /**
+     * @return the layout of the back view of {@code edge}, or 0 for the
+     * {@link DefaultBackView}
+     */
+    private int getBackViewLayoutId(int edge) {
+        final int layoutId = mBackViewLayoutIds[edgeIndex(edge)];
+        return layoutId > 0 ? layoutId : 0;
+    }
+
+    private View inflateBackView(LayoutInflater inflater, int edge) {
+        inflater = RevealLayerFactory.wrap(inflater);
+        final int layoutId = mBackViewLayoutIds[edgeIndex(edge)];
+        if (layoutId > 0) {
+            return inflater.inflate(layoutId, this, false);
+        }
+        final View backView = new DefaultBackView(getContext());
+        backView.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+        return backView;
+    }
+
+    /**
+     * Hands the back views back to the pool, if one is set. Only called while
+     * the content is at rest, when the back views are covered.
+     */
+    private void recycleBackViews() {
+        if (mBackViewPool != null) {
+            releaseBackViews();
+        }
+    }
+
+    /**
+     * Removes the back views, handing them to the pool if one is set. They are
+     * created again when the content is next pulled.
+     */
+    private void releaseBackViews() {
+        for (int i = 0; i < EDGE_COUNT; i++) {
+            final View backView = mBackViews[i];
+            if (backView == null) {
+                continue;
+            }
+            if (backView == mBackView) {
+                if (mTouchOnBackView) {
+                    cancelBackViewTouch();
+                }
+                releaseBackViewCache();
+                mBackView = null;
+            }
+            mBackViews[i] = null;
+            mStaleEdges &= ~(1 << i);
+            removeRevealLayers(backView);
+            // covered by the target, so nothing needs to be laid out or redrawn
+            removeViewInLayout(backView);
+            if (mBackViewPool != null) {
+                mBackViewPool.recycle(getBackViewLayoutId(1 << i), backView);
+            }
+        }
+    }
+
+    private void attachBackView(int edge, View backView) {
+        mBackViews[edgeIndex(edge)] = backView;
+        mStaleEdges &= ~edge;
+        if (edge == mActiveEdge) {
+            mBackView = backView;
+            setBackViewRevealed(mCurrentTargetOffset > 0);
+        } else {
+            ViewCompat.setImportantForAccessibility(backView,
+                    ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS);
+        }
+        collectRevealLayers(backView);
+        final TextLayoutView textView = findBackViewText(backView);
+        if (textView != null) {
+            // not attached yet: measured together with the back view below. A
+            // pooled back view may still show the text of its last layout.
+            final CharSequence inflatedText = getInflatedText(textView);
+            textView.setText(mBackViewText != null ? mBackViewText : inflatedText);
+        }
+        if (mOnBindBackViewListener != null) {
+            mOnBindBackViewListener.onBindBackView(this, backView, edge);
+        }
+        if (getWidth() == 0) {
+            addView(backView, 0);
+            return;
+        }
+        // Already laid out, possibly mid-drag: measure and place the back view
+        // here rather than requesting a layout of the whole container.
+        addViewInLayout(backView, 0, backView.getLayoutParams(), true);
+        measureChild(backView, mLastWidthMeasureSpec, mLastHeightMeasureSpec);
+        layoutBackView(edge, backView);
+        if (edge == mActiveEdge) {
+            mDistanceToTriggerSync = -1;
+            ensureTarget();
+        }
+        invalidate();
+    }
+
+    private void collectRevealLayers(View view) {
+        final RevealLayer layer = RevealLayerFactory.getLayer(view);
+        if (layer != null) {
+            addRevealLayer(layer);
+        }
+        if (view instanceof ViewGroup) {
+            final ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                collectRevealLayers(group.getChildAt(i));
+            }
+        }
+    }
+
+    private void removeRevealLayers(View view) {
+        final RevealLayer layer = RevealLayerFactory.getLayer(view);
+        if (layer != null) {
+            removeRevealLayer(layer);
+        }
+        if (view instanceof ViewGroup) {
+            final ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                removeRevealLayers(group.getChildAt(i));
+            }
+        }
+    }
+
+    /**
+     * Animates a view inside the back view with the reveal progress. Layers
+     * declared in the back view layout are added when it is inflated.
+     */
+    public void addRevealLayer(RevealLayer layer) {
+        if (mRevealLayers.contains(layer)) {
+            return;
+        }
+        mRevealLayers.add(layer);
+        // a whole-view cache would be redrawn on every frame, see cacheBackView()
+        releaseBackViewCache();
+        layer.apply(getRevealProgress());
+    }
+
+    public void removeRevealLayer(RevealLayer layer) {
+        mRevealLayers.remove(layer);
+    }
+
+    /**
+     * @return the offset as a fraction of the trigger distance, clamped to 1
+     */
+    private float getRevealProgress() {
+        if (mDistanceToTriggerSync <= 0) {
+            return 0;
+        }
+        return Math.min(1, mCurrentTargetOffset / mDistanceToTriggerSync);
+    }
+
+    private void updateRevealLayers() {
+        final float progress = getRevealProgress();
+        for (int i = 0, size = mRevealLayers.size(); i < size; i++) {
+            mRevealLayers.get(i).apply(progress);
+        }
+    }
+
+    private void inflateBackViewsAsync() {
+        mAsyncInflationStarted = true;
+        for (int i = 0; i < EDGE_COUNT; i++) {
+            final int edge = 1 << i;
+            if ((mEnabledEdges & edge) != 0 && mBackViews[i] == null
+                    && (edge == EDGE_TOP || mBackViewLayoutIds[i] > 0)) {
+                inflateBackViewAsync(edge);
+            }
+        }
+    }
+
+    private void inflateBackViewAsync(final int edge) {
+        // LayoutInflater is not thread safe, the background thread gets its own
+        final LayoutInflater inflater = LayoutInflater.from(getContext()).cloneInContext(getContext());
+        final int generation = mAttachGeneration;
+        getInflateExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final View backView;
+                try {
+                    backView = inflateBackView(inflater, edge);
+                } catch (RuntimeException e) {
+                    Log.w(LOG_TAG, "Could not inflate the back view in the background, inflating on drag.", e);
+                    return;
+                }
+                MAIN_HANDLER.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // a detached layout may never be attached again
+                        if (generation == mAttachGeneration && mBackViews[edgeIndex(edge)] == null) {
+                            attachBackView(edge, backView);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return the executor shared by all layouts for back view inflation and
+     * text layout. Its thread runs at background priority and does not keep
+     * the process alive.
+     */
+    static synchronized Executor getInflateExecutor() {
+        if (sInflateExecutor == null) {
+            sInflateExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, INFLATE_THREAD_NAME);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sInflateExecutor;
+    }
+
+    private void animateToFinished() {
+        removeCallbacks();
+        if (layouted) {
+            // already on the UI thread, no need for another message
+            returnToStartPositionRunnable.run();
+        } else {
+            returnToStartPositionRunnable.post();
+        }
+    }
+
+    /**
+     * @return Whether the SwipeRefreshWidget is actively showing refresh
+     * progress.
+     */
+
+    private void ensureTarget() {
+        // Don't bother getting the parent height if the parent hasn't been laid out yet.
+        if (mTarget == null) {
+            checkChild();
+            for (int i = 0; i < getChildCount() && mTarget == null; i++) {
+                if (!isBackView(getChildAt(i))) {
+                    mTarget = getChildAt(i);
+                }
+            }
+            if (mTarget != null) {
+                if (mTopDetector == null) {
+                    mTopDetector = createDefaultTopDetector(mTarget);
+                }
+                // otherwise attached with the layout
+                if (getWindowToken() != null) {
+                    mTopDetector.attach(mTarget);
+                }
+            }
+        }
+        if (mDistanceToTriggerSync == -1) {
+            final boolean vertical = isVerticalEdge(mActiveEdge);
+            if (mBackView != null) {
+                mDistanceToTriggerSync = getBackViewSize();
+            } else if (getParent() != null && ((View) getParent()).getHeight() > 0) {
+                final View parent = (View) getParent();
+                mDistanceToTriggerSync = (int) Math.min(
+                        (vertical ? parent.getHeight() : parent.getWidth()) * mConfig.getMaxSwipeDistanceFactor(),
+                        mConfig.getTriggerDistance());
+            }
+            mGesture.setTriggerDistance(mDistanceToTriggerSync);
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        layouted = true;
+        if (mHotPathGuard != null) {
+            mHotPathGuard.onLayout();
+        }
+        final long start = isRecordingMetrics() ? System.nanoTime() : 0;
+        layoutChildren(changed);
+        if (start != 0) {
+            mMetricsRecorder.onLayout(System.nanoTime() - start);
+        }
+    }
+
+    private boolean isRecordingMetrics() {
+        return mMetricsRecorder != null && mMetricsRecorder.isActive();
+    }
+
+    private void layoutChildren(boolean changed) {
+        final int width = getMeasuredWidth();
+        final int height = getMeasuredHeight();
+        if (getChildCount() == 0) {
+            return;
+        }
+
+        final int childLeft = getPaddingLeft();
+        final int childTop = getPaddingTop();
+        final int childWidth = width - getPaddingLeft() - getPaddingRight();
+        final int childHeight = height - getPaddingTop() - getPaddingBottom();
+
+        // Offsets are applied by moving the target directly, so a pass where
+        // neither the bounds nor a child changed has nothing to place.
+        boolean missingBackView = false;
+        for (int i = 0; i < EDGE_COUNT; i++) {
+            final View backView = mBackViews[i];
+            if (backView == null) {
+                missingBackView |= (mEnabledEdges & 1 << i) != 0;
+            } else if (!(changed || backView.isLayoutRequested())) {
+                continue;
+            } else if (backView == mBackView && mBackViewRevealed) {
+                layoutBackView(1 << i, backView);
+            } else {
+                mStaleEdges |= 1 << i;
+            }
+        }
+        if (missingBackView && mBackViewInflation == INFLATE_ASYNC && !mAsyncInflationStarted
+                && mBackViewPool == null) {
+            inflateBackViewsAsync();
+        }
+        if (mTarget != null && (changed || mTarget.isLayoutRequested())) {
+            // in the other modes the content is moved while drawing and its bounds stay at rest
+            final int dx = mOffsetMode == OFFSET_LAYOUT ? getTargetOffsetX() : 0;
+            final int dy = mOffsetMode == OFFSET_LAYOUT ? getTargetOffsetY() : 0;
+            mTarget.layout(childLeft + dx, childTop + dy, childLeft + dx + childWidth, childTop + dy + childHeight);
+        }
+    }
+
+    /**
+     * Places a back view against its edge, under the content.
+     */
+    private void layoutBackView(int edge, View backView) {
+        final int width = backView.getMeasuredWidth();
+        final int height = backView.getMeasuredHeight();
+        int left = getPaddingLeft();
+        int top = getPaddingTop();
+        if (!isPositiveEdge(edge)) {
+            if (isVerticalEdge(edge)) {
+                top = getHeight() - getPaddingBottom() - height;
+            } else {
+                left = getWidth() - getPaddingRight() - width;
+            }
+        }
+        backView.layout(left, top, left + width, top + height);
+    }
+
+    @Override
+    public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (mHotPathGuard != null) {
+            mHotPathGuard.onMeasure();
+        }
+        final long start = isRecordingMetrics() ? System.nanoTime() : 0;
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        final boolean specsChanged = widthMeasureSpec != mLastWidthMeasureSpec
+                || heightMeasureSpec != mLastHeightMeasureSpec;
+        mLastWidthMeasureSpec = widthMeasureSpec;
+        mLastHeightMeasureSpec = heightMeasureSpec;
+
+        for (int i = 0; i < getChildCount(); i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE || !(specsChanged || child.isLayoutRequested())) {
+                // same specs and nothing changed inside: the last result still holds
+                continue;
+            }
+            final int edge = edgeOf(child);
+            if (edge != 0 && !(child == mBackView && mBackViewRevealed) && child.getMeasuredHeight() > 0) {
+                // covered by the target: measured on the first drag frame instead
+                mStaleEdges |= edge;
+            } else if (child == mBackView) {
+                final int oldSize = getBackViewSize();
+                measureChild(child, widthMeasureSpec, heightMeasureSpec);
+                if (getBackViewSize() != oldSize) {
+                    mDistanceToTriggerSync = -1;
+                }
+            } else {
+                measureChild(child, widthMeasureSpec, heightMeasureSpec);
+            }
+        }
+        if (mTarget == null || mDistanceToTriggerSync == -1) {
+            ensureTarget();
+        }
+        if (start != 0) {
+            mMetricsRecorder.onMeasure(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return the extent of the active back view along its pull axis
+     */
+    private int getBackViewSize() {
+        return isVerticalEdge(mActiveEdge) ? mBackView.getMeasuredHeight() : mBackView.getMeasuredWidth();
+    }
+
+    private void checkChild() {
+        int contentCount = 0;
+        for (int i = 0; i < getChildCount(); i++) {
+            if (!isBackView(getChildAt(i))) {
+                contentCount++;
+            }
+        }
+        if (contentCount > 1 && !isInEditMode()) {
+            throw new IllegalStateException(getClass().getSimpleName() + " can host only one direct child");
+        }
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        if (mTraceRecorder != null) {
+            mTraceRecorder.record(ev);
+        }
+        if (mOffsetMode != OFFSET_CANVAS || mCurrentTargetOffset == 0) {
+            return super.dispatchTouchEvent(ev);
+        }
+        // the content sees touches where it is drawn; the shift is taken back
+        // out for this layout's own handling and the back view, see
+        // onInterceptTouchEvent()
+        final float shiftX = mTouchShiftX = getTargetOffsetX();
+        final float shiftY = mTouchShiftY = getTargetOffsetY();
+        ev.offsetLocation(-shiftX, -shiftY);
+        final boolean handled = super.dispatchTouchEvent(ev);
+        ev.offsetLocation(shiftX, shiftY);
+        mTouchShiftX = mTouchShiftY = 0;
+        return handled;
+    }
+
+    /**
+     * @return whether ({@code x}, {@code y}) is on the part of the back view
+     * the pulled target exposes, whichever way the target is moved
+     */
+    private boolean isOnExposedStrip(float x, float y) {
+        final View backView = mBackView;
+        if (backView == null || mTarget == null || !mBackViewRevealed
+                || x < backView.getLeft() || x >= backView.getRight()
+                || y < backView.getTop() || y >= backView.getBottom()) {
+            return false;
+        }
+        float left = mTarget.getLeft();
+        float top = mTarget.getTop();
+        if (mOffsetMode == OFFSET_CANVAS) {
+            left += getTargetOffsetX();
+            top += getTargetOffsetY();
+        } else if (mOffsetMode == OFFSET_TRANSLATION) {
+            left += ViewCompat.getTranslationX(mTarget);
+            top += ViewCompat.getTranslationY(mTarget);
+        }
+        return x < left || x >= left + mTarget.getWidth() || y < top || y >= top + mTarget.getHeight();
+    }
+
+    /**
+     * Hands {@code ev}, in this layout's coordinates, to the back view: it is
+     * laid out where it is drawn in every offset mode.
+     */
+    private boolean dispatchToBackView(MotionEvent ev) {
+        final View backView = mBackView;
+        if (backView == null) {
+            return false;
+        }
+        final float dx = getScrollX() - backView.getLeft();
+        final float dy = getScrollY() - backView.getTop();
+        ev.offsetLocation(dx, dy);
+        final boolean handled = backView.dispatchTouchEvent(ev);
+        ev.offsetLocation(-dx, -dy);
+        return handled;
+    }
+
+    private void cancelBackViewTouch() {
+        mTouchOnBackView = false;
+        final long now = SystemClock.uptimeMillis();
+        final MotionEvent cancel = MotionEvent.obtain(now, now, MotionEvent.ACTION_CANCEL, 0, 0, 0);
+        dispatchToBackView(cancel);
+        cancel.recycle();
+    }
+
+    private int getTargetOffsetX() {
+        if (isVerticalEdge(mActiveEdge)) {
+            return 0;
+        }
+        return isPositiveEdge(mActiveEdge) ? mCurrentTargetOffset : -mCurrentTargetOffset;
+    }
+
+    private int getTargetOffsetY() {
+        if (!isVerticalEdge(mActiveEdge)) {
+            return 0;
+        }
+        return isPositiveEdge(mActiveEdge) ? mCurrentTargetOffset : -mCurrentTargetOffset;
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        if (mTouchShiftX == 0 && mTouchShiftY == 0) {
+            return interceptTouchEvent(ev);
+        }
+        ev.offsetLocation(mTouchShiftX, mTouchShiftY);
+        final boolean intercepted = interceptTouchEvent(ev);
+        ev.offsetLocation(-mTouchShiftX, -mTouchShiftY);
+        return intercepted;
+    }
+
+    private boolean interceptTouchEvent(MotionEvent ev) {
+        ensureTarget();
+        if (mTarget == null) {
+            return false;
+        }
+        final int action = MotionEventCompat.getActionMasked(ev);
+        if (action == MotionEvent.ACTION_DOWN) {
+            // The back view gets the first go at touches on the strip the
+            // content exposes, as is; otherwise they catch the content
+            // mid-flight. Intercepted, the rest comes through onTouchEvent().
+            mTouchOnBackView = mBackViewRevealed && isOnExposedStrip(ev.getX(), ev.getY()) && dispatchToBackView(ev);
+            if (mTouchOnBackView) {
+                return true;
+            }
+        }
+
+        if (action == MotionEvent.ACTION_DOWN && mCurrentTargetOffset > 0 && isEnabled() && canDrag) {
+            // Catch the target mid-flight: stop returning and keep dragging from
+            // wherever it is now instead of snapping back.
+            removeCallbacks();
+            onDownEvent(ev);
+            return true;
+        }
+
+        if (!isEnabled() || mReturning || mNestedScrollInProgress || !canDrag) {
+            // Fail fast if we're not in a state where a swipe is possible
+            return false;
+        }
+
+        switch (action) {
             case MotionEvent.ACTION_DOWN:
-                mLastMotionY = mInitialMotionY = ev.getY();
-                mActivePointerId = MotionEventCompat.getPointerId(ev, 0);
-                mIsBeingDragged = false;
+                if (!onDownEvent(ev)) {
+                    // the content can scroll towards every enabled edge
+                    return false;
+                }
                 break;
 
             case MotionEvent.ACTION_MOVE:
-                final int pointerIndex = MotionEventCompat.findPointerIndex(ev, mActivePointerId);
-                if (pointerIndex < 0) {
-                    Log.e(LOG_TAG, "Got ACTION_MOVE event but have an invalid active pointer id.");
-                    return false;
+                onMoveEvent(ev);
+                break;
+
+            case MotionEventCompat.ACTION_POINTER_DOWN:
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                mGesture.onRelease(ev.getEventTime());
+                if (mCurrentTargetOffset == 0 && mHotPathGuard != null) {
+                    mHotPathGuard.stop();
                 }
+                break;
+        }
 
-                final float y = MotionEventCompat.getY(ev, pointerIndex);
-                final float yDiff = y - mInitialMotionY;
-                final float yDelta = y - mLastMotionY;
+        return mGesture.isDragging();
+    }
 
-                if (!mIsBeingDragged && yDiff > mTouchSlop) {
-                    mIsBeingDragged = true;
-                }
+    private boolean canDrag = true;
 
-                if (mIsBeingDragged) {
-                    updateContentOffsetTop((int) yDelta);
-                    if (mLastMotionY > y && mTarget.getTop() == getPaddingTop()) {
-                        removeCallbacks(cancelPullRunnable);
-                    } else {
-                        updatePositionTimeout();
-                    }
-                    mLastMotionY = y;
+    /**
+     * Starts tracking a gesture. With a single edge to pull from the gesture
+     * starts right away; with several, the first move past the touch slop
+     * picks one.
+     *
+     * @return whether the gesture may pull the target
+     */
+    private boolean onDownEvent(MotionEvent ev) {
+        final int pointerId = MotionEventCompat.getPointerId(ev, 0);
+        if (mCurrentTargetOffset > 0) {
+            // caught mid-flight: keeps pulling from the same edge
+            mCandidateEdges = mActiveEdge;
+        } else {
+            mCandidateEdges = computeCandidateEdges();
+            if (isTargetNestedScrollingEnabled()) {
+                // nested scrolling children report vertical overscroll through onNestedScroll
+                mCandidateEdges &= ~(EDGE_TOP | EDGE_BOTTOM);
+            }
+        }
+        mInitialPointerId = pointerId;
+        mInitialDownX = ev.getX();
+        mInitialDownY = ev.getY();
+        mInitialDownTime = ev.getEventTime();
+        if (Integer.bitCount(mCandidateEdges) == 1) {
+            setActiveEdge(mCandidateEdges);
+            mGesture.onDown(pointerId, projectOnEdge(mActiveEdge, mInitialDownX, mInitialDownY), mInitialDownTime);
+        } else {
+            // forget the last pointer until a direction is picked
+            mGesture.onRelease(mInitialDownTime);
+        }
+        if (mCandidateEdges != 0 && mHotPathGuard != null) {
+            mHotPathGuard.start();
+        }
+        return mCandidateEdges != 0;
+    }
+
+    /**
+     * Feeds a move to the gesture, picking its edge first if needed.
+     *
+     * @return whether the target is being dragged
+     */
+    private boolean onMoveEvent(MotionEvent ev) {
+        if (mGesture.getActivePointerId() == INVALID_POINTER && !pickEdge(ev)) {
+            return false;
+        }
+        final int activePointerId = mGesture.getActivePointerId();
+        final int pointerIndex = MotionEventCompat.findPointerIndex(ev, activePointerId);
+        if (pointerIndex < 0) {
+            Log.e(LOG_TAG, "Got ACTION_MOVE event but have an invalid active pointer id.");
+            return false;
+        }
+
+        addHistoricalSamples(ev, pointerIndex);
+        return mGesture.onMove(activePointerId, projectOnEdge(mActiveEdge,
+                MotionEventCompat.getX(ev, pointerIndex), MotionEventCompat.getY(ev, pointerIndex)), ev.getEventTime());
+    }
+
+    /**
+     * Picks the edge to pull from the direction of the first move past the
+     * touch slop, and starts the gesture from the down position.
+     *
+     * @return whether an edge was picked
+     */
+    private boolean pickEdge(MotionEvent ev) {
+        if (mCandidateEdges == 0) {
+            return false;
+        }
+        final int pointerIndex = MotionEventCompat.findPointerIndex(ev, mInitialPointerId);
+        if (pointerIndex < 0) {
+            Log.e(LOG_TAG, "Got ACTION_MOVE event but have an invalid active pointer id.");
+            return false;
+        }
+        final float dx = MotionEventCompat.getX(ev, pointerIndex) - mInitialDownX;
+        final float dy = MotionEventCompat.getY(ev, pointerIndex) - mInitialDownY;
+        if (Math.max(Math.abs(dx), Math.abs(dy)) <= mTouchSlop) {
+            return false;
+        }
+        final int edge = edgeForDirection(dx, dy);
+        if ((mCandidateEdges & edge) == 0) {
+            // moving towards something the content scrolls to: leave it the gesture
+            mCandidateEdges = 0;
+            return false;
+        }
+        setActiveEdge(edge);
+        mGesture.onDown(mInitialPointerId, projectOnEdge(edge, mInitialDownX, mInitialDownY), mInitialDownTime);
+        return true;
+    }
+
+    private boolean isTargetNestedScrollingEnabled() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                && mTarget.isNestedScrollingEnabled();
+    }
+
+    // NestedScrollingParent
+
+    @Override
+    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+        return isEnabled() && canDrag
+                && ((nestedScrollAxes & SCROLL_AXIS_VERTICAL) != 0 && (mEnabledEdges & (EDGE_TOP | EDGE_BOTTOM)) != 0
+                || (nestedScrollAxes & SCROLL_AXIS_HORIZONTAL) != 0 && (mEnabledEdges & (EDGE_START | EDGE_END)) != 0);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int axes) {
+        super.onNestedScrollAccepted(child, target, axes);
+        startNestedScroll(axes);
+        // a new scroll takes over from a return in progress without snapping
+        removeCallbacks();
+        mNestedScrollInProgress = true;
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        // While pulled, scrolling the content back towards the edge closes the
+        // reveal first. Scroll deltas run against the finger, hence the signs.
+        final int pull = (int) projectOnEdge(mActiveEdge, -dx, -dy);
+        if (pull < 0 && mCurrentTargetOffset > 0) {
+            final int consumedDistance = Math.min(-pull, mCurrentTargetOffset);
+            offsetTarget(mGesture.pull(-consumedDistance));
+            if (isVerticalEdge(mActiveEdge)) {
+                consumed[1] = dy > 0 ? consumedDistance : -consumedDistance;
+            } else {
+                consumed[0] = dx > 0 ? consumedDistance : -consumedDistance;
+            }
+            if (mCurrentTargetOffset == 0) {
+                cancelPullRunnable.cancel();
+            } else {
+                mGesture.touchIdleDeadline(SystemClock.uptimeMillis());
+                cancelPullRunnable.touch();
+            }
+        }
+        // the parent gets the first go at the rest
+        final int[] parentConsumed = mParentScrollConsumed;
+        if (dispatchNestedPreScroll(dx - consumed[0], dy - consumed[1], parentConsumed, null)) {
+            consumed[0] += parentConsumed[0];
+            consumed[1] += parentConsumed[1];
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+        // The parent scrolls first, as it would for the child alone. Whatever
+        // it leaves over while the child is at an edge is the pull.
+        dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, mParentOffsetInWindow);
+        dxUnconsumed += mParentOffsetInWindow[0];
+        dyUnconsumed += mParentOffsetInWindow[1];
+        final int edge = edgeForDirection(-dxUnconsumed, -dyUnconsumed);
+        if (edge == 0 || (mEnabledEdges & edge) == 0) {
+            return;
+        }
+        setActiveEdge(edge);
+        final float pull = projectOnEdge(mActiveEdge, -dxUnconsumed, -dyUnconsumed);
+        if (pull > 0) {
+            offsetTarget(mGesture.pull(pull));
+            mGesture.touchIdleDeadline(SystemClock.uptimeMillis());
+            cancelPullRunnable.touch();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        if (mCurrentTargetOffset > 0) {
+            // the fling releases the reveal instead of scrolling the content
+            releaseWithVelocity(projectOnEdge(mActiveEdge, -velocityX, -velocityY));
+            return true;
+        }
+        return dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed) {
+        final int edge = edgeForDirection(-velocityX, -velocityY);
+        if (consumed || edge == 0 || mCurrentTargetOffset != 0) {
+            return dispatchNestedFling(velocityX, velocityY, consumed);
+        }
+        ensureTarget();
+        if ((computeCandidateEdges() & edge) == 0) {
+            return dispatchNestedFling(velocityX, velocityY, consumed);
+        }
+        // A fling towards an edge that the child cannot take any further
+        // carries on into the reveal, bounded by the back view size.
+        setActiveEdge(edge);
+        final float maxVelocity = mGesture.getSpring().getVelocityForPeak(mDistanceToTriggerSync);
+        releaseWithVelocity(Math.min(projectOnEdge(edge, -velocityX, -velocityY), maxVelocity));
+        return true;
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public void onStopNestedScroll(View child) {
+        super.onStopNestedScroll(child);
+        stopNestedScroll();
+        mNestedScrollInProgress = false;
+        if (mCurrentTargetOffset > 0 && !mReturning) {
+            releaseWithVelocity(0);
+        } else if (mCurrentTargetOffset == 0) {
+            recycleBackViews();
+        }
+    }
+
+    private void releaseWithVelocity(float velocity) {
+        removeCallbacks();
+        mReturning = true;
+        mRevealDispatcher.onChanged();
+        returnToStartPositionRunnable.setStartVelocity(velocity);
+        cancelPullRunnable.fireNow();
+    }
+
+    @Override
+    public void requestDisallowInterceptTouchEvent(boolean b) {
+        // Nope.
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        if (mTouchShiftX == 0 && mTouchShiftY == 0) {
+            return handleTouchEvent(ev);
+        }
+        ev.offsetLocation(mTouchShiftX, mTouchShiftY);
+        final boolean handled = handleTouchEvent(ev);
+        ev.offsetLocation(-mTouchShiftX, -mTouchShiftY);
+        return handled;
+    }
+
+    private boolean handleTouchEvent(MotionEvent ev) {
+        final int action = MotionEventCompat.getActionMasked(ev);
+        if (mTouchOnBackView) {
+            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                mTouchOnBackView = false;
+            }
+            // the down was handed over while intercepting it
+            return action == MotionEvent.ACTION_DOWN || dispatchToBackView(ev);
+        }
+
+        if (!isEnabled() || mReturning || (mCandidateEdges == 0 && mCurrentTargetOffset == 0) || !canDrag) {
+            // Fail fast if we're not in a state where a swipe is possible
+            return false;
+        }
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+                // a target caught mid-flight is dragged without waiting for the slop
+                onDownEvent(ev);
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                if (onMoveEvent(ev)) {
+                    // applied once per frame, however many events arrive before it
+                    mDragFrameCallback.schedule();
                 }
                 break;
 
             case MotionEventCompat.ACTION_POINTER_DOWN:
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
-                mIsBeingDragged = false;
-                mActivePointerId = INVALID_POINTER;
-                post(cancelPullRunnable);
+                mDragFrameCallback.flush();
+                returnToStartPositionRunnable.setStartVelocity(mGesture.onRelease(ev.getEventTime()));
+                if (mCurrentTargetOffset > 0) {
+                    cancelPullRunnable.fireNow();
+                } else {
+                    cancelPullRunnable.cancel();
+                    recycleBackViews();
+                    if (mMetricsRecorder != null) {
+                        mMetricsRecorder.onGestureEnd();
+                    }
+                    if (mHotPathGuard != null) {
+                        mHotPathGuard.stop();
+                    }
+                }
                 return false;
         }
 
         return true;
     }
 
-    private void updateContentOffsetTop(int offset) {
-        removeCallbacks();
-        final int currentTop = mTarget.getTop();
-        int nextTop = offset + currentTop;
-        if (nextTop <= 0) {
-            offset = -currentTop;
-        } else if (nextTop > 2 * mDistanceToTriggerSync && offset > 0) {
-            offset *= 0.2;
+    private void addHistoricalSamples(MotionEvent ev, int pointerIndex) {
+        final int historySize = ev.getHistorySize();
+        for (int i = 0; i < historySize; i++) {
+            mGesture.addHistoricalSample(projectOnEdge(mActiveEdge, ev.getHistoricalX(pointerIndex, i),
+                    ev.getHistoricalY(pointerIndex, i)), ev.getHistoricalEventTime(i));
         }
-        setTargetOffsetTopAndBottom(offset);
     }
 
-    private void setTargetOffsetTopAndBottom(final int offset) {
+    /**
+     * Collects the drag distance of all move events within a frame and moves
+     * the target once when the frame starts.
+     */
+    private class DragFrameCallback implements FrameScheduler.Task {
+
+        private boolean mScheduled;
+
+        public void schedule() {
+            if (!mScheduled) {
+                mScheduled = true;
+                FrameScheduler.getInstance().schedule(this);
+            }
+        }
+
+        @Override
+        public boolean doFrame(long frameTimeNanos) {
+            mScheduled = false;
+            apply();
+            return false;
+        }
+
+        /**
+         * Applies what is pending right away, e.g. before a release.
+         */
+        public void flush() {
+            cancel();
+            apply();
+        }
+
+        public void cancel() {
+            if (mScheduled) {
+                mScheduled = false;
+                FrameScheduler.getInstance().cancel(this);
+            }
+        }
+
+        private void apply() {
+            final long eventTime = mGesture.getPendingEventTime();
+            final int offset = mGesture.applyPendingDelta(SystemClock.uptimeMillis());
+            if (offset != 0) {
+                offsetTarget(offset);
+                if (mMetricsRecorder != null) {
+                    mMetricsRecorder.onTouchApplied(eventTime);
+                }
+            }
+            if (mGesture.getIdleDeadline() == DragGesture.NO_DEADLINE) {
+                cancelPullRunnable.cancel();
+            } else {
+                cancelPullRunnable.touch();
+            }
+        }
+    }
+
+    private void offsetTarget(final int offset) {
         if (offset == 0) {
             return;
         }
-        mTarget.offsetTopAndBottom(offset);
-        mCurrentTargetOffsetTop = mTarget.getTop();
+        if (mBackView == null && offset > 0) {
+            ensureBackView(mActiveEdge);
+        }
+        mCurrentTargetOffset += offset;
+        final boolean positive = isPositiveEdge(mActiveEdge);
+        if (mOffsetMode == OFFSET_TRANSLATION) {
+            final float translation = positive ? mCurrentTargetOffset : -mCurrentTargetOffset;
+            if (isVerticalEdge(mActiveEdge)) {
+                ViewCompat.setTranslationY(mTarget, translation);
+            } else {
+                ViewCompat.setTranslationX(mTarget, translation);
+            }
+        } else if (mOffsetMode == OFFSET_CANVAS) {
+            invalidate();
+        } else if (isVerticalEdge(mActiveEdge)) {
+            mTarget.offsetTopAndBottom(positive ? offset : -offset);
+        } else {
+            mTarget.offsetLeftAndRight(positive ? offset : -offset);
+        }
+        mRevealDispatcher.onChanged();
+        if (mBackViewRevealed != mCurrentTargetOffset > 0) {
+            setBackViewRevealed(mCurrentTargetOffset > 0);
+        }
+        if (!mRevealLayers.isEmpty()) {
+            updateRevealLayers();
+        }
+        if (mMetricsRecorder != null) {
+            recordOffset();
+        }
+        if (mCurrentTargetOffset > 0) {
+            cacheBackView();
+        } else {
+            releaseBackViewCache();
+        }
     }
 
+    private void setBackViewRevealed(boolean revealed) {
+        mBackViewRevealed = revealed;
+        if (mBackView == null) {
+            return;
+        }
+        if (revealed && (mStaleEdges & mActiveEdge) != 0) {
+            remeasureBackView(mActiveEdge);
+        }
+        ViewCompat.setImportantForAccessibility(mBackView, revealed
+                ? ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_AUTO
+                : ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS);
+    }
 
-    private void updatePositionTimeout() {
-        removeCallbacks(cancelPullRunnable);
-        postDelayed(cancelPullRunnable, RETURN_TO_ORIGINAL_POSITION_TIMEOUT);
+    /**
+     * Measures and places the back view of {@code edge} outside of a layout
+     * pass, updating the trigger distance if it is the active one.
+     */
+    private void remeasureBackView(int edge) {
+        final View backView = mBackViews[edgeIndex(edge)];
+        if (mLastWidthMeasureSpec == -1) {
+            // not measured yet, the first pass takes care of it
+            return;
+        }
+        mStaleEdges &= ~edge;
+        final int oldSize = backView == mBackView ? getBackViewSize() : 0;
+        measureChild(backView, mLastWidthMeasureSpec, mLastHeightMeasureSpec);
+        layoutBackView(edge, backView);
+        if (backView == mBackView && getBackViewSize() != oldSize) {
+            mDistanceToTriggerSync = -1;
+            ensureTarget();
+        }
     }
 
     /**
-     * Simple AnimationListener to avoid having to implement unneeded methods in
-     * AnimationListeners.
+     * Draws the back view only while the target is pulled, clipped to the
+     * strip the target exposes.
      */
-    private class BaseAnimationListener implements AnimationListener {
-        @Override
-        public void onAnimationStart(Animation animation) {
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        if (child == mTarget && mOffsetMode == OFFSET_CANVAS && mCurrentTargetOffset != 0) {
+            final int saveCount = canvas.save();
+            canvas.translate(getTargetOffsetX(), getTargetOffsetY());
+            final boolean more = super.drawChild(canvas, child, drawingTime);
+            canvas.restoreToCount(saveCount);
+            return more;
+        }
+        if (!isBackView(child) || mTarget == null) {
+            return super.drawChild(canvas, child, drawingTime);
         }
+        if (child != mBackView || !mBackViewRevealed) {
+            return false;
+        }
+        int left = child.getLeft();
+        int top = child.getTop();
+        int right = child.getRight();
+        int bottom = child.getBottom();
+        // where the content is drawn, whichever way it is moved
+        if (mActiveEdge == EDGE_TOP) {
+            bottom = Math.min(bottom, getPaddingTop() + mCurrentTargetOffset);
+        } else if (mActiveEdge == EDGE_BOTTOM) {
+            top = Math.max(top, getHeight() - getPaddingBottom() - mCurrentTargetOffset);
+        } else if (isPositiveEdge(mActiveEdge)) {
+            right = Math.min(right, getPaddingLeft() + mCurrentTargetOffset);
+        } else {
+            left = Math.max(left, getWidth() - getPaddingRight() - mCurrentTargetOffset);
+        }
+        final int saveCount = canvas.save();
+        canvas.clipRect(left, top, right, bottom);
+        final boolean more = super.drawChild(canvas, child, drawingTime);
+        canvas.restoreToCount(saveCount);
+        return more;
+    }
 
-        @Override
-        public void onAnimationEnd(Animation animation) {
+    private void recordOffset() {
+        if (mCurrentTargetOffset > 0) {
+            mMetricsRecorder.onGestureStart();
+            mMetricsRecorder.onOffset(mCurrentTargetOffset);
+        } else if (!mGesture.isDragging() && !mNestedScrollInProgress) {
+            mMetricsRecorder.onGestureEnd();
         }
+    }
 
-        @Override
-        public void onAnimationRepeat(Animation animation) {
+    /**
+     * Enables caching the back view while it is revealed: it is rendered into
+     * a hardware layer, or a drawing cache bitmap when the window is not
+     * hardware accelerated, from the start of a pull until the content is back
+     * at rest, so a static back view is not redrawn on every frame.
+     */
+    public void setBackViewCacheEnabled(boolean enabled) {
+        if (!enabled) {
+            releaseBackViewCache();
+        }
+        mBackViewCacheEnabled = enabled;
+        if (enabled && mCurrentTargetOffset > 0) {
+            cacheBackView();
         }
     }
 
+    /**
+     * Redraws the cached back view. Call this after changing its content in a
+     * way that does not invalidate it, when the cache is enabled.
+     */
+    public void invalidateBackViewCache() {
+        if (mBackView == null) {
+            return;
+        }
+        if (mBackViewCached && !isBackViewHardwareLayer()) {
+            mBackView.destroyDrawingCache();
+        }
+        mBackView.invalidate();
+    }
+
+    private void cacheBackView() {
+        // reveal layers change the back view on every frame, caching it whole
+        // would only add a redraw of the cache to each of them
+        if (!mBackViewCacheEnabled || mBackViewCached || mBackView == null || !mRevealLayers.isEmpty()) {
+            return;
+        }
+        mBackViewCached = true;
+        if (isBackViewHardwareLayer()) {
+            ViewCompat.setLayerType(mBackView, ViewCompat.LAYER_TYPE_HARDWARE, null);
+        } else {
+            mBackView.setDrawingCacheEnabled(true);
+        }
+    }
+
+    private void releaseBackViewCache() {
+        if (!mBackViewCached) {
+            return;
+        }
+        mBackViewCached = false;
+        if (isBackViewHardwareLayer()) {
+            ViewCompat.setLayerType(mBackView, ViewCompat.LAYER_TYPE_NONE, null);
+        } else {
+            mBackView.setDrawingCacheEnabled(false);
+        }
+    }
+
+    private boolean isBackViewHardwareLayer() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB && isHardwareAccelerated();
+    }
 }
@@ -0,0 +1,50 @@
+package me.ele.backviewlayout;
+
+import android.util.SparseArray;
+import android.view.View;
+
+/**
+ * Back views shared by the {@link BackViewLayout}s of one Activity or window,
+ * e.g. the pages of a ViewPager. A layout using the pool borrows a back view
+ * when its content is first pulled and gives it back once the content is at
+ * rest again, so a screen keeps one inflated back view per layout resource
+ * instead of one per layout.
+ * <p/>
+ * The views are bound to the context they were inflated with: do not share a
+ * pool between Activities. Per-layout content goes through
+ * {@link BackViewLayout#setOnBindBackViewListener}. Must be used on the UI
+ * thread.
+ */
+public final class BackViewPool {
+
+    private final SparseArray<View> mIdleViews = new SparseArray<View>();
+
+    /**
+     * @return an idle back view inflated from {@code layoutId}, or null
+     */
+    View obtain(int layoutId) {
+        final View view = mIdleViews.get(layoutId);
+        if (view != null) {
+            mIdleViews.remove(layoutId);
+        }
+        return view;
+    }
+
+    /**
+     * Takes back a view inflated from {@code layoutId}. Only one idle view is
+     * kept per layout; a second one, left over from two layouts pulled at the
+     * same time, is dropped.
+     */
+    void recycle(int layoutId, View view) {
+        if (mIdleViews.get(layoutId) == null) {
+            mIdleViews.put(layoutId, view);
+        }
+    }
+
+    /**
+     * Drops the idle views, e.g. when the Activity is trimming memory.
+     */
+    public void clear() {
+        mIdleViews.clear();
+    }
+}
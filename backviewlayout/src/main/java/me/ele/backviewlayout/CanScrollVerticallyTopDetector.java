@@ -0,0 +1,58 @@
+package me.ele.backviewlayout;
+
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * {@link ChildTopDetector} for targets that only report their position through
+ * {@link View#canScrollVertically(int)}, such as RecyclerView. The probe runs
+ * on scrolls of the target only, never per touch event.
+ */
+public class CanScrollVerticallyTopDetector extends ScrollChangeTopDetector {
+
+    // where the target's content was at the last probe
+    private int mScrollX;
+    private int mScrollY;
+    private View mFirstChild;
+    private int mFirstChildLeft;
+    private int mFirstChildTop;
+
+    @Override
+    protected boolean computeChildAtTop(View target) {
+        return !ViewCompat.canScrollVertically(target, -1);
+    }
+
+    @Override
+    protected int computeChildEdges(View target) {
+        mScrollX = target.getScrollX();
+        mScrollY = target.getScrollY();
+        mFirstChild = getFirstChild(target);
+        mFirstChildLeft = mFirstChild != null ? mFirstChild.getLeft() : 0;
+        mFirstChildTop = mFirstChild != null ? mFirstChild.getTop() : 0;
+        return super.computeChildEdges(target);
+    }
+
+    @Override
+    public void onScrollChanged() {
+        // reported for a scroll of any view in the window; only probe when
+        // the target scrolled itself or moved its children
+        final View target = getTarget();
+        if (target == null) {
+            return;
+        }
+        final View firstChild = getFirstChild(target);
+        if (target.getScrollX() != mScrollX || target.getScrollY() != mScrollY || firstChild != mFirstChild
+                || (firstChild != null
+                && (firstChild.getLeft() != mFirstChildLeft || firstChild.getTop() != mFirstChildTop))) {
+            update();
+        }
+    }
+
+    private static View getFirstChild(View target) {
+        if (target instanceof ViewGroup && ((ViewGroup) target).getChildCount() > 0) {
+            return ((ViewGroup) target).getChildAt(0);
+        }
+        return null;
+    }
+}
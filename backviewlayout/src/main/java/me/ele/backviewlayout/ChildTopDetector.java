@@ -0,0 +1,33 @@
+package me.ele.backviewlayout;
+
+import android.view.View;
+
+/**
+ * Tells {@link BackViewLayout} which edges its content is scrolled to, so the
+ * touch path only has to read cached flags instead of probing the content on
+ * every gesture. Implementations keep the flags current from scroll and layout
+ * callbacks of the target.
+ */
+public interface ChildTopDetector {
+
+    /**
+     * Starts tracking {@code target}. Called when the layout is attached to a
+     * window or the detector is installed on an attached layout.
+     */
+    void attach(View target);
+
+    /**
+     * Stops tracking {@code target} and drops any listener registered on it.
+     */
+    void detach(View target);
+
+    /**
+     * @param edge one of {@link BackViewLayout#EDGE_TOP},
+     *             {@link BackViewLayout#EDGE_BOTTOM},
+     *             {@link BackViewLayout#EDGE_START} or
+     *             {@link BackViewLayout#EDGE_END}
+     * @return whether the target cannot scroll any further towards
+     * {@code edge}; must be cheap
+     */
+    boolean isChildAtEdge(int edge);
+}
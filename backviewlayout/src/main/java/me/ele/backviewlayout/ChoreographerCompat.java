@@ -0,0 +1,119 @@
+package me.ele.backviewlayout;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * Frame callbacks backed by {@link Choreographer} on API 16+ and by a
+ * {@link Handler} ticking at the default frame rate below that.
+ */
+abstract class ChoreographerCompat {
+
+    private static final long FRAME_DELAY_MILLIS = 16;
+    private static final boolean IS_JELLYBEAN_OR_HIGHER =
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+
+    private static final ThreadLocal<ChoreographerCompat> INSTANCE = new ThreadLocal<ChoreographerCompat>() {
+        @Override
+        protected ChoreographerCompat initialValue() {
+            if (IS_JELLYBEAN_OR_HIGHER) {
+                return new ChoreographerImpl();
+            }
+            return new LegacyImpl();
+        }
+    };
+
+    /**
+     * @return the instance bound to the calling thread, which must have a {@link Looper}.
+     */
+    public static ChoreographerCompat getInstance() {
+        return INSTANCE.get();
+    }
+
+    /**
+     * Replaces the instance bound to the calling thread, so tests can run
+     * frames by hand. Null restores the default one.
+     */
+    static void setInstance(ChoreographerCompat instance) {
+        if (instance == null) {
+            INSTANCE.remove();
+        } else {
+            INSTANCE.set(instance);
+        }
+    }
+
+    public abstract void postFrameCallback(FrameCallback callback);
+
+    public abstract void removeFrameCallback(FrameCallback callback);
+
+    /**
+     * Callback invoked on the next frame. The platform callback or runnable
+     * backing it is created once, so re-posting does not allocate.
+     */
+    public static abstract class FrameCallback {
+
+        private Runnable mRunnable;
+        private Choreographer.FrameCallback mFrameCallback;
+
+        public abstract void doFrame(long frameTimeNanos);
+
+        @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+        Choreographer.FrameCallback getFrameCallback() {
+            if (mFrameCallback == null) {
+                mFrameCallback = new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        FrameCallback.this.doFrame(frameTimeNanos);
+                    }
+                };
+            }
+            return mFrameCallback;
+        }
+
+        Runnable getRunnable() {
+            if (mRunnable == null) {
+                mRunnable = new Runnable() {
+                    @Override
+                    public void run() {
+                        doFrame(System.nanoTime());
+                    }
+                };
+            }
+            return mRunnable;
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerImpl extends ChoreographerCompat {
+
+        private final Choreographer mChoreographer = Choreographer.getInstance();
+
+        @Override
+        public void postFrameCallback(FrameCallback callback) {
+            mChoreographer.postFrameCallback(callback.getFrameCallback());
+        }
+
+        @Override
+        public void removeFrameCallback(FrameCallback callback) {
+            mChoreographer.removeFrameCallback(callback.getFrameCallback());
+        }
+    }
+
+    private static class LegacyImpl extends ChoreographerCompat {
+
+        private final Handler mHandler = new Handler(Looper.myLooper());
+
+        @Override
+        public void postFrameCallback(FrameCallback callback) {
+            mHandler.postDelayed(callback.getRunnable(), FRAME_DELAY_MILLIS);
+        }
+
+        @Override
+        public void removeFrameCallback(FrameCallback callback) {
+            mHandler.removeCallbacks(callback.getRunnable());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package me.ele.backviewlayout;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.TypedValue;
+
+/**
+ * The back view of a {@link BackViewLayout} without a back view layout: a
+ * title, which {@link BackViewLayout#setBackViewText} fills, over a fixed
+ * subtitle. Both lines are drawn by this one view from cached text layouts,
+ * so the default back view costs one view to create, measure and draw.
+ * <p/>
+ * Set through {@link BackViewLayout#setOnBindBackViewListener} to change the
+ * strings, colors or sizes.
+ */
+public class DefaultBackView extends TextLayoutView {
+
+    private static final int TEXT_COLOR = 0xff676d6f;
+    private static final int TEXT_SIZE_SP = 16;
+    private static final int TITLE_MARGIN_DIP = 40;
+    private static final int SUBTITLE_MARGIN_DIP = 15;
+
+    private final TextPaint mSubtitlePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final int mSubtitleMargin;
+    private CharSequence mSubtitle;
+    private Layout mSubtitleLayout;
+
+    public DefaultBackView(Context context) {
+        super(context);
+        setId(R.id.back_view_text);
+        final float textSize = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, TEXT_SIZE_SP,
+                getResources().getDisplayMetrics());
+        final float density = getResources().getDisplayMetrics().density;
+        mSubtitleMargin = (int) (SUBTITLE_MARGIN_DIP * density);
+        setPadding(0, (int) (TITLE_MARGIN_DIP * density), 0, 0);
+        setAlignment(Layout.Alignment.ALIGN_CENTER);
+        setTextSize(textSize);
+        setTextColor(TEXT_COLOR);
+        setText(context.getText(R.string.line_1));
+        mSubtitlePaint.setTextSize(textSize);
+        mSubtitlePaint.setColor(TEXT_COLOR);
+        mSubtitle = context.getText(R.string.line_2);
+    }
+
+    public CharSequence getSubtitle() {
+        return mSubtitle;
+    }
+
+    public void setSubtitle(CharSequence subtitle) {
+        if (subtitle == null) {
+            subtitle = "";
+        }
+        if (subtitle.equals(mSubtitle)) {
+            return;
+        }
+        mSubtitle = subtitle;
+        onSubtitleChanged();
+    }
+
+    /**
+     * @param size the subtitle size in pixels
+     */
+    public void setSubtitleTextSize(float size) {
+        mSubtitlePaint.setTextSize(size);
+        onSubtitleChanged();
+    }
+
+    public void setSubtitleTextColor(int color) {
+        mSubtitlePaint.setColor(color);
+        // the layout draws with the paint it was created with
+        onSubtitleChanged();
+    }
+
+    private void onSubtitleChanged() {
+        mSubtitleLayout = null;
+        requestLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(widthMeasureSpec, MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+        final int width = Math.max(0, getMeasuredWidth() - getPaddingLeft() - getPaddingRight());
+        if (mSubtitleLayout == null || mSubtitleLayout.getWidth() != width) {
+            mSubtitleLayout = new StaticLayout(mSubtitle, mSubtitlePaint, width,
+                    Layout.Alignment.ALIGN_CENTER, 1f, 0f, false);
+        }
+        final int height = getMeasuredHeight() + mSubtitleMargin + mSubtitleLayout.getHeight();
+        setMeasuredDimension(getMeasuredWidth(), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (mSubtitleLayout == null) {
+            return;
+        }
+        final int saveCount = canvas.save();
+        // at the bottom: a title of another height always comes with a layout pass
+        canvas.translate(getPaddingLeft(), getHeight() - getPaddingBottom() - mSubtitleLayout.getHeight());
+        mSubtitleLayout.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+}
@@ -0,0 +1,93 @@
+package me.ele.backviewlayout;
+
+import java.util.ArrayList;
+
+/**
+ * Runs the per-frame work of all the {@link BackViewLayout}s of a thread from
+ * one frame callback, e.g. the pages of a pager returning to rest together
+ * after a fast swipe. Every task of a frame sees the same frame time, and the
+ * callback is only posted while some task is waiting for a frame.
+ * <p/>
+ * Scheduling and running tasks does not allocate once the task lists have
+ * grown to the number of layouts that animate at once.
+ */
+final class FrameScheduler extends ChoreographerCompat.FrameCallback {
+
+    /**
+     * Work done on the next frame.
+     */
+    interface Task {
+
+        /**
+         * @return whether to run again on the frame after
+         */
+        boolean doFrame(long frameTimeNanos);
+    }
+
+    private static final ThreadLocal<FrameScheduler> INSTANCE = new ThreadLocal<FrameScheduler>();
+
+    private final ChoreographerCompat mChoreographer;
+    private ArrayList<Task> mPending = new ArrayList<Task>();
+    private ArrayList<Task> mRunning = new ArrayList<Task>();
+    private boolean mPosted;
+
+    private FrameScheduler(ChoreographerCompat choreographer) {
+        mChoreographer = choreographer;
+    }
+
+    /**
+     * @return the scheduler of the calling thread, which must have a Looper.
+     * Tasks scheduled before {@link ChoreographerCompat#setInstance} replaced
+     * the thread's instance are dropped with it.
+     */
+    public static FrameScheduler getInstance() {
+        final ChoreographerCompat choreographer = ChoreographerCompat.getInstance();
+        FrameScheduler scheduler = INSTANCE.get();
+        if (scheduler == null || scheduler.mChoreographer != choreographer) {
+            scheduler = new FrameScheduler(choreographer);
+            INSTANCE.set(scheduler);
+        }
+        return scheduler;
+    }
+
+    /**
+     * Runs {@code task} on the next frame, once however often it is scheduled.
+     */
+    public void schedule(Task task) {
+        if (!mPending.contains(task)) {
+            mPending.add(task);
+        }
+        if (!mPosted) {
+            mPosted = true;
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    public void cancel(Task task) {
+        mPending.remove(task);
+        // may be cancelled by a task that runs before it in this frame
+        final int running = mRunning.indexOf(task);
+        if (running >= 0) {
+            mRunning.set(running, null);
+        }
+        if (mPending.isEmpty() && mPosted) {
+            mPosted = false;
+            mChoreographer.removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mPosted = false;
+        final ArrayList<Task> running = mPending;
+        mPending = mRunning;
+        mRunning = running;
+        for (int i = 0; i < running.size(); i++) {
+            final Task task = running.get(i);
+            if (task != null && task.doFrame(frameTimeNanos)) {
+                schedule(task);
+            }
+        }
+        running.clear();
+    }
+}
@@ -0,0 +1,137 @@
+package me.ele.backviewlayout;
+
+/**
+ * Stats of one reveal gesture, from the first pulled frame until the content
+ * is back at rest. Frames are counted by a frame callback running for the
+ * whole gesture; a frame is dropped when the gap to the previous one spans
+ * more than one refresh interval.
+ */
+public final class GestureMetrics {
+
+    /**
+     * The return started because the pointer was released.
+     */
+    public static final int RETURN_RELEASE = 0;
+    /**
+     * The return started because the drag was idle for the idle timeout.
+     */
+    public static final int RETURN_IDLE_TIMEOUT = 1;
+
+    int dragFrames;
+    int dragDroppedFrames;
+    int returnFrames;
+    int returnDroppedFrames;
+    int latencySamples;
+    long latencyTotalMillis;
+    long latencyMaxMillis;
+    int measureCount;
+    long measureNanos;
+    int layoutCount;
+    long layoutNanos;
+    int peakOffset;
+    int returnTrigger = RETURN_RELEASE;
+
+    GestureMetrics() {
+
+    }
+
+    void reset() {
+        dragFrames = 0;
+        dragDroppedFrames = 0;
+        returnFrames = 0;
+        returnDroppedFrames = 0;
+        latencySamples = 0;
+        latencyTotalMillis = 0;
+        latencyMaxMillis = 0;
+        measureCount = 0;
+        measureNanos = 0;
+        layoutCount = 0;
+        layoutNanos = 0;
+        peakOffset = 0;
+        returnTrigger = RETURN_RELEASE;
+    }
+
+    /**
+     * @return frames rendered while the content was dragged
+     */
+    public int getDragFrames() {
+        return dragFrames;
+    }
+
+    /**
+     * @return frames missed while the content was dragged
+     */
+    public int getDragDroppedFrames() {
+        return dragDroppedFrames;
+    }
+
+    /**
+     * @return frames rendered while the content returned to rest
+     */
+    public int getReturnFrames() {
+        return returnFrames;
+    }
+
+    /**
+     * @return frames missed while the content returned to rest
+     */
+    public int getReturnDroppedFrames() {
+        return returnDroppedFrames;
+    }
+
+    /**
+     * @return mean time from a move event to the content being offset for it, in ms
+     */
+    public float getAverageTouchLatencyMillis() {
+        return latencySamples == 0 ? 0 : (float) latencyTotalMillis / latencySamples;
+    }
+
+    /**
+     * @return longest time from a move event to the content being offset for it, in ms
+     */
+    public long getMaxTouchLatencyMillis() {
+        return latencyMaxMillis;
+    }
+
+    /**
+     * @return measure passes of the layout during the gesture
+     */
+    public int getMeasureCount() {
+        return measureCount;
+    }
+
+    /**
+     * @return time spent in onMeasure during the gesture, in ns
+     */
+    public long getMeasureNanos() {
+        return measureNanos;
+    }
+
+    /**
+     * @return layout passes of the layout during the gesture
+     */
+    public int getLayoutCount() {
+        return layoutCount;
+    }
+
+    /**
+     * @return time spent in onLayout during the gesture, in ns
+     */
+    public long getLayoutNanos() {
+        return layoutNanos;
+    }
+
+    /**
+     * @return largest offset of the content during the gesture, in px
+     */
+    public int getPeakOffset() {
+        return peakOffset;
+    }
+
+    /**
+     * @return what started the return, {@link #RETURN_RELEASE} or {@link #RETURN_IDLE_TIMEOUT}
+     */
+    public int getReturnTrigger() {
+        return returnTrigger;
+    }
+}
@@ -0,0 +1,144 @@
+package me.ele.backviewlayout;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.Display;
+import android.view.WindowManager;
+
+/**
+ * Collects {@link GestureMetrics} for a {@link BackViewLayout}. Only exists
+ * while a {@link GestureMetricsSink} is installed; everything it records is
+ * primitive, so a gesture allocates nothing.
+ */
+class GestureMetricsRecorder implements FrameScheduler.Task {
+
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+
+    private final BackViewLayout mLayout;
+    private final GestureMetricsSink mSink;
+    private final GestureMetrics mMetrics = new GestureMetrics();
+    private final long mFrameIntervalNanos;
+
+    private boolean mActive;
+    private boolean mReturning;
+    private long mLastFrameTimeNanos;
+
+    GestureMetricsRecorder(BackViewLayout layout, GestureMetricsSink sink) {
+        mLayout = layout;
+        mSink = sink;
+        mFrameIntervalNanos = (long) (1e9 / getRefreshRate(layout.getContext()));
+    }
+
+    static float getRefreshRate(Context context) {
+        final WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        final Display display = windowManager != null ? windowManager.getDefaultDisplay() : null;
+        final float refreshRate = display != null ? display.getRefreshRate() : 0;
+        return refreshRate >= 1 ? refreshRate : DEFAULT_REFRESH_RATE;
+    }
+
+    public boolean isActive() {
+        return mActive;
+    }
+
+    /**
+     * The content left its rest position.
+     */
+    public void onGestureStart() {
+        if (mActive) {
+            return;
+        }
+        mMetrics.reset();
+        mActive = true;
+        mReturning = false;
+        mLastFrameTimeNanos = 0;
+        FrameScheduler.getInstance().schedule(this);
+    }
+
+    public void onOffset(int offset) {
+        if (offset > mMetrics.peakOffset) {
+            mMetrics.peakOffset = offset;
+        }
+    }
+
+    /**
+     * The content was offset for a move event that happened at {@code eventTime}.
+     */
+    public void onTouchApplied(long eventTime) {
+        if (!mActive) {
+            return;
+        }
+        final long latency = SystemClock.uptimeMillis() - eventTime;
+        mMetrics.latencySamples++;
+        mMetrics.latencyTotalMillis += latency;
+        if (latency > mMetrics.latencyMaxMillis) {
+            mMetrics.latencyMaxMillis = latency;
+        }
+    }
+
+    public void onReturnStart(int trigger) {
+        mReturning = true;
+        mMetrics.returnTrigger = trigger;
+    }
+
+    /**
+     * The return was interrupted and the content is dragged again.
+     */
+    public void onReturnInterrupted() {
+        mReturning = false;
+    }
+
+    public void onMeasure(long nanos) {
+        if (mActive) {
+            mMetrics.measureCount++;
+            mMetrics.measureNanos += nanos;
+        }
+    }
+
+    public void onLayout(long nanos) {
+        if (mActive) {
+            mMetrics.layoutCount++;
+            mMetrics.layoutNanos += nanos;
+        }
+    }
+
+    /**
+     * The content is back at rest: reports the gesture.
+     */
+    public void onGestureEnd() {
+        if (!mActive) {
+            return;
+        }
+        stop();
+        mSink.onGestureMetrics(mLayout, mMetrics);
+    }
+
+    /**
+     * Drops the gesture without reporting it.
+     */
+    public void stop() {
+        if (mActive) {
+            mActive = false;
+            FrameScheduler.getInstance().cancel(this);
+        }
+    }
+
+    @Override
+    public boolean doFrame(long frameTimeNanos) {
+        if (!mActive) {
+            return false;
+        }
+        int dropped = 0;
+        if (mLastFrameTimeNanos != 0) {
+            dropped = (int) ((frameTimeNanos - mLastFrameTimeNanos - mFrameIntervalNanos / 2) / mFrameIntervalNanos);
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        if (mReturning) {
+            mMetrics.returnFrames++;
+            mMetrics.returnDroppedFrames += Math.max(0, dropped);
+        } else {
+            mMetrics.dragFrames++;
+            mMetrics.dragDroppedFrames += Math.max(0, dropped);
+        }
+        return true;
+    }
+}
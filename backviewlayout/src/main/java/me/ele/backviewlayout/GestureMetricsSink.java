@@ -0,0 +1,15 @@
+package me.ele.backviewlayout;
+
+/**
+ * Receives the {@link GestureMetrics} of each reveal gesture of a
+ * {@link BackViewLayout}, once the content is back at rest.
+ */
+public interface GestureMetricsSink {
+
+    /**
+     * @param layout  the layout the gesture happened on
+     * @param metrics the stats of the gesture; the instance is reused for the
+     *                next gesture, copy what should be kept
+     */
+    void onGestureMetrics(BackViewLayout layout, GestureMetrics metrics);
+}
@@ -0,0 +1,203 @@
+package me.ele.backviewlayout;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.MotionEvent;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A recorded stream of {@link MotionEvent}s, as written by
+ * {@link GestureTraceRecorder}.
+ * <p/>
+ * Binary layout, big-endian: the int {@link #MAGIC} and a byte version, then
+ * one record per event: a {@link #RECORD} tag byte, the int action, the long
+ * down and event times, the byte pointer count, per pointer its byte id and
+ * float x and y, the short history size and per historical sample its long
+ * time followed by the float x and y of each pointer.
+ */
+public final class GestureTrace {
+
+    static final int MAGIC = 0x42564c54; // "BVLT"
+    static final int VERSION = 1;
+    static final int RECORD = 'E';
+
+    private final List<Event> mEvents;
+
+    private GestureTrace(List<Event> events) {
+        mEvents = Collections.unmodifiableList(events);
+    }
+
+    /**
+     * Reads a trace written by {@link GestureTraceRecorder#writeTo}.
+     */
+    public static GestureTrace read(InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a gesture trace");
+        }
+        final int version = data.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported gesture trace version " + version);
+        }
+        final List<Event> events = new ArrayList<Event>();
+        while (true) {
+            final int tag;
+            try {
+                tag = data.readByte();
+            } catch (EOFException e) {
+                break;
+            }
+            if (tag != RECORD) {
+                throw new IOException("Corrupt gesture trace at event " + events.size());
+            }
+            events.add(Event.read(data));
+        }
+        return new GestureTrace(events);
+    }
+
+    public List<Event> getEvents() {
+        return mEvents;
+    }
+
+    /**
+     * One recorded {@link MotionEvent}. Historical samples are stored
+     * sample-major: the coordinate of pointer {@code p} in sample {@code h} is
+     * at {@code h * getPointerCount() + p}.
+     */
+    public static final class Event {
+
+        public final int action;
+        public final long downTime;
+        public final long eventTime;
+        public final int[] pointerIds;
+        public final float[] x;
+        public final float[] y;
+        public final long[] historicalTimes;
+        public final float[] historicalX;
+        public final float[] historicalY;
+
+        private Event(int action, long downTime, long eventTime, int[] pointerIds, float[] x, float[] y,
+                      long[] historicalTimes, float[] historicalX, float[] historicalY) {
+            this.action = action;
+            this.downTime = downTime;
+            this.eventTime = eventTime;
+            this.pointerIds = pointerIds;
+            this.x = x;
+            this.y = y;
+            this.historicalTimes = historicalTimes;
+            this.historicalX = historicalX;
+            this.historicalY = historicalY;
+        }
+
+        static Event read(DataInputStream in) throws IOException {
+            final int action = in.readInt();
+            final long downTime = in.readLong();
+            final long eventTime = in.readLong();
+            final int pointerCount = in.readByte();
+            final int[] ids = new int[pointerCount];
+            final float[] x = new float[pointerCount];
+            final float[] y = new float[pointerCount];
+            for (int p = 0; p < pointerCount; p++) {
+                ids[p] = in.readByte();
+                x[p] = in.readFloat();
+                y[p] = in.readFloat();
+            }
+            final int historySize = in.readShort();
+            final long[] times = new long[historySize];
+            final float[] historicalX = new float[historySize * pointerCount];
+            final float[] historicalY = new float[historySize * pointerCount];
+            for (int h = 0; h < historySize; h++) {
+                times[h] = in.readLong();
+                for (int p = 0; p < pointerCount; p++) {
+                    historicalX[h * pointerCount + p] = in.readFloat();
+                    historicalY[h * pointerCount + p] = in.readFloat();
+                }
+            }
+            return new Event(action, downTime, eventTime, ids, x, y, times, historicalX, historicalY);
+        }
+
+        public int getPointerCount() {
+            return pointerIds.length;
+        }
+
+        public int getHistorySize() {
+            return historicalTimes.length;
+        }
+
+        /**
+         * Rebuilds the event with its historical samples, shifting all times
+         * by {@code timeShift} ms. Below API 14 only the first pointer is
+         * rebuilt. Recycle it after use.
+         */
+        public MotionEvent toMotionEvent(long timeShift) {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+                return toSinglePointerEvent(timeShift);
+            }
+            return toMultiPointerEvent(timeShift);
+        }
+
+        private MotionEvent toSinglePointerEvent(long timeShift) {
+            final int pointerCount = getPointerCount();
+            MotionEvent event = null;
+            for (int h = 0; h < getHistorySize(); h++) {
+                final long time = historicalTimes[h] + timeShift;
+                final float sampleX = historicalX[h * pointerCount];
+                final float sampleY = historicalY[h * pointerCount];
+                if (event == null) {
+                    event = MotionEvent.obtain(downTime + timeShift, time, action, sampleX, sampleY, 0);
+                } else {
+                    event.addBatch(time, sampleX, sampleY, 1f, 1f, 0);
+                }
+            }
+            if (event == null) {
+                return MotionEvent.obtain(downTime + timeShift, eventTime + timeShift, action, x[0], y[0], 0);
+            }
+            event.addBatch(eventTime + timeShift, x[0], y[0], 1f, 1f, 0);
+            return event;
+        }
+
+        @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+        private MotionEvent toMultiPointerEvent(long timeShift) {
+            final int pointerCount = getPointerCount();
+            final MotionEvent.PointerProperties[] properties = new MotionEvent.PointerProperties[pointerCount];
+            final MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[pointerCount];
+            for (int p = 0; p < pointerCount; p++) {
+                properties[p] = new MotionEvent.PointerProperties();
+                properties[p].id = pointerIds[p];
+                properties[p].toolType = MotionEvent.TOOL_TYPE_FINGER;
+                coords[p] = new MotionEvent.PointerCoords();
+            }
+            MotionEvent event = null;
+            for (int h = 0; h < getHistorySize(); h++) {
+                for (int p = 0; p < pointerCount; p++) {
+                    coords[p].x = historicalX[h * pointerCount + p];
+                    coords[p].y = historicalY[h * pointerCount + p];
+                }
+                event = appendSample(event, historicalTimes[h] + timeShift, properties, coords, timeShift);
+            }
+            for (int p = 0; p < pointerCount; p++) {
+                coords[p].x = x[p];
+                coords[p].y = y[p];
+            }
+            return appendSample(event, eventTime + timeShift, properties, coords, timeShift);
+        }
+
+        @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+        private MotionEvent appendSample(MotionEvent event, long time, MotionEvent.PointerProperties[] properties,
+                                         MotionEvent.PointerCoords[] coords, long timeShift) {
+            if (event == null) {
+                return MotionEvent.obtain(downTime + timeShift, time, action, properties.length,
+                        properties, coords, 0, 0, 1f, 1f, 0, 0, 0, 0);
+            }
+            event.addBatch(time, coords, 0);
+            return event;
+        }
+    }
+}
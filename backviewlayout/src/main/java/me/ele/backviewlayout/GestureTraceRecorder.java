@@ -0,0 +1,89 @@
+package me.ele.backviewlayout;
+
+import android.view.MotionEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Captures the touch events reaching a {@link BackViewLayout} into a compact
+ * binary {@link GestureTrace}, so a gesture seen on a device can be replayed
+ * as a repeatable test. Debug builds only, see
+ * {@link BackViewLayout#setGestureTraceRecorder}.
+ */
+public final class GestureTraceRecorder {
+
+    private final ByteArrayOutputStream mBytes = new ByteArrayOutputStream(4096);
+    private final DataOutputStream mOut = new DataOutputStream(mBytes);
+    private int mEventCount;
+
+    public GestureTraceRecorder() {
+        clear();
+    }
+
+    void record(MotionEvent ev) {
+        final int pointerCount = ev.getPointerCount();
+        final int historySize = ev.getHistorySize();
+        try {
+            mOut.writeByte(GestureTrace.RECORD);
+            mOut.writeInt(ev.getAction());
+            mOut.writeLong(ev.getDownTime());
+            mOut.writeLong(ev.getEventTime());
+            mOut.writeByte(pointerCount);
+            for (int p = 0; p < pointerCount; p++) {
+                mOut.writeByte(ev.getPointerId(p));
+                mOut.writeFloat(ev.getX(p));
+                mOut.writeFloat(ev.getY(p));
+            }
+            mOut.writeShort(historySize);
+            for (int h = 0; h < historySize; h++) {
+                mOut.writeLong(ev.getHistoricalEventTime(h));
+                for (int p = 0; p < pointerCount; p++) {
+                    mOut.writeFloat(ev.getHistoricalX(p, h));
+                    mOut.writeFloat(ev.getHistoricalY(p, h));
+                }
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+        mEventCount++;
+    }
+
+    public int getEventCount() {
+        return mEventCount;
+    }
+
+    /**
+     * Drops everything recorded so far.
+     */
+    public void clear() {
+        mBytes.reset();
+        mEventCount = 0;
+        try {
+            mOut.writeInt(GestureTrace.MAGIC);
+            mOut.writeByte(GestureTrace.VERSION);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        mBytes.writeTo(out);
+    }
+
+    public byte[] toByteArray() {
+        return mBytes.toByteArray();
+    }
+
+    public GestureTrace toTrace() {
+        try {
+            return GestureTrace.read(new ByteArrayInputStream(mBytes.toByteArray()));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
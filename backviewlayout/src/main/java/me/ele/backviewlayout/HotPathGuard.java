@@ -0,0 +1,137 @@
+package me.ele.backviewlayout;
+
+import android.os.Debug;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Watches the hot path of the reveal gestures of a {@link BackViewLayout}
+ * for layout passes, allocations and slow work, and hands what it finds to a
+ * {@link HotPathPolicy}. Only exists while a policy is installed, in
+ * debuggable builds.
+ * <p/>
+ * Slow work is told from the gap between two frames rather than by timing
+ * each message, since a Looper message logger builds strings for every
+ * message and would be reported as allocations itself.
+ */
+class HotPathGuard implements FrameScheduler.Task {
+
+    // allocation counting is process wide, it stays on while any guard is active
+    private static int sCountingGuards;
+
+    private final BackViewLayout mLayout;
+    private final HotPathPolicy mPolicy;
+    private final long mFrameIntervalNanos;
+
+    private boolean mActive;
+    private long mLastFrameTimeNanos;
+    // the thread's allocation counter at the last check
+    private long mAllocatedBytes;
+    // allocated by the policy since the last check, not by the gesture
+    private long mPolicyBytes;
+
+    HotPathGuard(BackViewLayout layout, HotPathPolicy policy) {
+        mLayout = layout;
+        mPolicy = policy;
+        mFrameIntervalNanos = (long) (1e9 / GestureMetricsRecorder.getRefreshRate(layout.getContext()));
+    }
+
+    public boolean isActive() {
+        return mActive;
+    }
+
+    /**
+     * A gesture that may pull the content went down.
+     */
+    public void start() {
+        if (mActive) {
+            return;
+        }
+        mActive = true;
+        mLastFrameTimeNanos = 0;
+        if (sCountingGuards++ == 0) {
+            Debug.startAllocCounting();
+        }
+        mAllocatedBytes = Debug.getThreadAllocSize();
+        mPolicyBytes = 0;
+        FrameScheduler.getInstance().schedule(this);
+    }
+
+    /**
+     * The content is back at rest, or the layout went away.
+     */
+    public void stop() {
+        if (!mActive) {
+            return;
+        }
+        checkAllocations();
+        mActive = false;
+        if (--sCountingGuards == 0) {
+            Debug.stopAllocCounting();
+        }
+        FrameScheduler.getInstance().cancel(this);
+    }
+
+    public void onRequestLayout() {
+        if (mActive) {
+            report(HotPathPolicy.VIOLATION_REQUEST_LAYOUT, findLayoutRequester(mLayout), 0);
+        }
+    }
+
+    public void onMeasure() {
+        if (mActive) {
+            report(HotPathPolicy.VIOLATION_MEASURE, null, 0);
+        }
+    }
+
+    public void onLayout() {
+        if (mActive) {
+            report(HotPathPolicy.VIOLATION_LAYOUT, null, 0);
+        }
+    }
+
+    /**
+     * @return the deepest view below {@code parent} waiting for a layout, or
+     * {@code parent} itself
+     */
+    private static View findLayoutRequester(ViewGroup parent) {
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            final View child = parent.getChildAt(i);
+            if (child.isLayoutRequested()) {
+                return child instanceof ViewGroup ? findLayoutRequester((ViewGroup) child) : child;
+            }
+        }
+        return parent;
+    }
+
+    private void checkAllocations() {
+        final long allocated = Debug.getThreadAllocSize() - mAllocatedBytes - mPolicyBytes;
+        if (allocated > 0) {
+            report(HotPathPolicy.VIOLATION_ALLOCATION, null, allocated);
+        }
+        mAllocatedBytes = Debug.getThreadAllocSize();
+        mPolicyBytes = 0;
+    }
+
+    private void report(int violation, View view, long amount) {
+        final long before = Debug.getThreadAllocSize();
+        mPolicy.onViolation(mLayout, violation, view, amount);
+        mPolicyBytes += Debug.getThreadAllocSize() - before;
+    }
+
+    @Override
+    public boolean doFrame(long frameTimeNanos) {
+        if (!mActive) {
+            return false;
+        }
+        if (mLastFrameTimeNanos != 0) {
+            final long busyNanos = frameTimeNanos - mLastFrameTimeNanos - mFrameIntervalNanos;
+            if (busyNanos >= mFrameIntervalNanos) {
+                report(HotPathPolicy.VIOLATION_SLOW_WORK, null, busyNanos / 1000000);
+            }
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        checkAllocations();
+        return true;
+    }
+}
@@ -0,0 +1,80 @@
+package me.ele.backviewlayout;
+
+import android.util.Log;
+import android.view.View;
+
+/**
+ * Stock {@link HotPathPolicy}s.
+ */
+public final class HotPathPolicies {
+
+    private static final String LOG_TAG = BackViewLayout.class.getSimpleName();
+
+    /**
+     * Logs every violation as a warning.
+     */
+    public static final HotPathPolicy LOG = new HotPathPolicy() {
+        @Override
+        public void onViolation(BackViewLayout layout, int violation, View view, long amount) {
+            Log.w(LOG_TAG, describe(violation, view, amount));
+        }
+    };
+
+    /**
+     * Throws an {@link IllegalStateException} on the first violation, e.g. in
+     * UI tests.
+     */
+    public static final HotPathPolicy THROW = new HotPathPolicy() {
+        @Override
+        public void onViolation(BackViewLayout layout, int violation, View view, long amount) {
+            throw new IllegalStateException(describe(violation, view, amount));
+        }
+    };
+
+    private HotPathPolicies() {
+    }
+
+    /**
+     * Counts the violations of each kind, e.g. to report them with other
+     * stats of a screen.
+     */
+    public static class Counter implements HotPathPolicy {
+
+        private final int[] mCounts = new int[VIOLATION_SLOW_WORK + 1];
+
+        @Override
+        public void onViolation(BackViewLayout layout, int violation, View view, long amount) {
+            mCounts[violation]++;
+        }
+
+        /**
+         * @param violation one of the {@code VIOLATION_} constants of {@link HotPathPolicy}
+         */
+        public int getCount(int violation) {
+            return mCounts[violation];
+        }
+
+        public void reset() {
+            for (int i = 0; i < mCounts.length; i++) {
+                mCounts[i] = 0;
+            }
+        }
+    }
+
+    static String describe(int violation, View view, long amount) {
+        switch (violation) {
+            case HotPathPolicy.VIOLATION_REQUEST_LAYOUT:
+                return "requestLayout() during a reveal gesture by " + view;
+            case HotPathPolicy.VIOLATION_MEASURE:
+                return "Measure pass during a reveal gesture";
+            case HotPathPolicy.VIOLATION_LAYOUT:
+                return "Layout pass during a reveal gesture";
+            case HotPathPolicy.VIOLATION_ALLOCATION:
+                return amount + " bytes allocated on the UI thread in one frame of a reveal gesture";
+            case HotPathPolicy.VIOLATION_SLOW_WORK:
+                return "UI thread busy for " + amount + "ms during a reveal gesture";
+            default:
+                return "Unknown violation " + violation;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package me.ele.backviewlayout;
+
+import android.view.View;
+
+/**
+ * Decides what happens to work found on the hot path of a reveal gesture of
+ * a {@link BackViewLayout}, from the first touch until the content is back at
+ * rest. See {@link HotPathPolicies} for policies that log, count or throw.
+ */
+public interface HotPathPolicy {
+
+    /**
+     * A view inside the layout requested a layout pass.
+     */
+    int VIOLATION_REQUEST_LAYOUT = 1;
+    /**
+     * The layout was measured.
+     */
+    int VIOLATION_MEASURE = 2;
+    /**
+     * The layout was laid out.
+     */
+    int VIOLATION_LAYOUT = 3;
+    /**
+     * Objects were allocated on the UI thread between two frames; only
+     * reported where the runtime counts allocations.
+     */
+    int VIOLATION_ALLOCATION = 4;
+    /**
+     * The UI thread was busy for longer than a frame, so at least one frame
+     * was dropped.
+     */
+    int VIOLATION_SLOW_WORK = 5;
+
+    /**
+     * Called on the UI thread, where the violation happened or on the next
+     * frame.
+     *
+     * @param violation one of the {@code VIOLATION_} constants
+     * @param view      the view that requested a layout, otherwise null
+     * @param amount    the bytes allocated or the milliseconds of slow work,
+     *                  otherwise 0
+     */
+    void onViolation(BackViewLayout layout, int violation, View view, long amount);
+}
@@ -0,0 +1,148 @@
+package me.ele.backviewlayout;
+
+import android.content.res.TypedArray;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+/**
+ * Maps the reveal progress of a {@link BackViewLayout} to the translation,
+ * alpha and scale of a view inside its back view. Only view properties are
+ * touched, so a layer never causes a layout pass and animates on the render
+ * thread's display list. Progress 0 is the rest position and 1 the trigger
+ * distance; each property goes from its "from" value at the start of the
+ * progress range to its "to" value at the end.
+ * <p/>
+ * Layers are declared with the {@code layer*} attributes on views of the back
+ * view layout, or added with {@link BackViewLayout#addRevealLayer}.
+ */
+public final class RevealLayer {
+
+    private static final int TRANSLATION_X = 1;
+    private static final int TRANSLATION_Y = 1 << 1;
+    private static final int ALPHA = 1 << 2;
+    private static final int SCALE = 1 << 3;
+
+    private final View mView;
+    private int mProperties;
+    private float mProgressStart = 0;
+    private float mProgressEnd = 1;
+    private float mTranslationXFrom;
+    private float mTranslationXTo;
+    private float mTranslationYFrom;
+    private float mTranslationYTo;
+    private float mAlphaFrom = 1;
+    private float mAlphaTo = 1;
+    private float mScaleFrom = 1;
+    private float mScaleTo = 1;
+    private float mLastFraction = Float.NaN;
+
+    public RevealLayer(View view) {
+        mView = view;
+    }
+
+    static RevealLayer fromAttributes(View view, TypedArray a) {
+        final RevealLayer layer = new RevealLayer(view);
+        layer.setProgressRange(a.getFloat(R.styleable.BackViewLayer_layerProgressStart, 0),
+                a.getFloat(R.styleable.BackViewLayer_layerProgressEnd, 1));
+        if (a.hasValue(R.styleable.BackViewLayer_layerTranslationXFrom)
+                || a.hasValue(R.styleable.BackViewLayer_layerTranslationXTo)) {
+            layer.setTranslationX(a.getDimension(R.styleable.BackViewLayer_layerTranslationXFrom, 0),
+                    a.getDimension(R.styleable.BackViewLayer_layerTranslationXTo, 0));
+        }
+        if (a.hasValue(R.styleable.BackViewLayer_layerTranslationYFrom)
+                || a.hasValue(R.styleable.BackViewLayer_layerTranslationYTo)) {
+            layer.setTranslationY(a.getDimension(R.styleable.BackViewLayer_layerTranslationYFrom, 0),
+                    a.getDimension(R.styleable.BackViewLayer_layerTranslationYTo, 0));
+        }
+        if (a.hasValue(R.styleable.BackViewLayer_layerAlphaFrom)
+                || a.hasValue(R.styleable.BackViewLayer_layerAlphaTo)) {
+            layer.setAlpha(a.getFloat(R.styleable.BackViewLayer_layerAlphaFrom, 1),
+                    a.getFloat(R.styleable.BackViewLayer_layerAlphaTo, 1));
+        }
+        if (a.hasValue(R.styleable.BackViewLayer_layerScaleFrom)
+                || a.hasValue(R.styleable.BackViewLayer_layerScaleTo)) {
+            layer.setScale(a.getFloat(R.styleable.BackViewLayer_layerScaleFrom, 1),
+                    a.getFloat(R.styleable.BackViewLayer_layerScaleTo, 1));
+        }
+        return layer;
+    }
+
+    public View getView() {
+        return mView;
+    }
+
+    /**
+     * Animates the layer between {@code start} and {@code end} reveal
+     * progress only; it holds its "from" values before and "to" values after.
+     */
+    public void setProgressRange(float start, float end) {
+        if (end <= start) {
+            throw new IllegalArgumentException("Progress range is empty: " + start + " to " + end);
+        }
+        mProgressStart = start;
+        mProgressEnd = end;
+        mLastFraction = Float.NaN;
+    }
+
+    public void setTranslationX(float from, float to) {
+        mTranslationXFrom = from;
+        mTranslationXTo = to;
+        mProperties |= TRANSLATION_X;
+        mLastFraction = Float.NaN;
+    }
+
+    public void setTranslationY(float from, float to) {
+        mTranslationYFrom = from;
+        mTranslationYTo = to;
+        mProperties |= TRANSLATION_Y;
+        mLastFraction = Float.NaN;
+    }
+
+    public void setAlpha(float from, float to) {
+        mAlphaFrom = from;
+        mAlphaTo = to;
+        mProperties |= ALPHA;
+        mLastFraction = Float.NaN;
+    }
+
+    /**
+     * Scales the view uniformly around its pivot.
+     */
+    public void setScale(float from, float to) {
+        mScaleFrom = from;
+        mScaleTo = to;
+        mProperties |= SCALE;
+        mLastFraction = Float.NaN;
+    }
+
+    /**
+     * Applies the properties for {@code progress}; does nothing while the
+     * clamped position in the progress range is unchanged.
+     */
+    void apply(float progress) {
+        final float fraction = Math.max(0, Math.min(1,
+                (progress - mProgressStart) / (mProgressEnd - mProgressStart)));
+        if (fraction == mLastFraction) {
+            return;
+        }
+        mLastFraction = fraction;
+        if ((mProperties & TRANSLATION_X) != 0) {
+            ViewCompat.setTranslationX(mView, lerp(mTranslationXFrom, mTranslationXTo, fraction));
+        }
+        if ((mProperties & TRANSLATION_Y) != 0) {
+            ViewCompat.setTranslationY(mView, lerp(mTranslationYFrom, mTranslationYTo, fraction));
+        }
+        if ((mProperties & ALPHA) != 0) {
+            ViewCompat.setAlpha(mView, lerp(mAlphaFrom, mAlphaTo, fraction));
+        }
+        if ((mProperties & SCALE) != 0) {
+            final float scale = lerp(mScaleFrom, mScaleTo, fraction);
+            ViewCompat.setScaleX(mView, scale);
+            ViewCompat.setScaleY(mView, scale);
+        }
+    }
+
+    private static float lerp(float from, float to, float fraction) {
+        return from + (to - from) * fraction;
+    }
+}
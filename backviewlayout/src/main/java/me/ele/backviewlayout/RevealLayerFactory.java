@@ -0,0 +1,119 @@
+package me.ele.backviewlayout;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.view.InflateException;
+import android.view.LayoutInflater;
+import android.view.View;
+
+/**
+ * Inflater factory that reads the {@code BackViewLayer} attributes of views
+ * in the back view layout and tags those views with their {@link RevealLayer}.
+ * Views without layer attributes are left to the regular inflation.
+ */
+class RevealLayerFactory implements LayoutInflater.Factory {
+
+    private static final String[] CLASS_PREFIXES = {"android.widget.", "android.webkit.", "android.view."};
+
+    private final LayoutInflater mInflater;
+    private final LayoutInflater.Factory mDelegate;
+
+    private RevealLayerFactory(LayoutInflater inflater, LayoutInflater.Factory delegate) {
+        mInflater = inflater;
+        mDelegate = delegate;
+    }
+
+    /**
+     * @return a clone of {@code inflater} that also reads reveal layers
+     */
+    static LayoutInflater wrap(LayoutInflater inflater) {
+        final LayoutInflater clone = inflater.cloneInContext(inflater.getContext());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            // a Factory2, e.g. the one AppCompat installs, is asked before any Factory
+            clone.setFactory2(new HoneycombFactory(clone, inflater.getFactory(), inflater.getFactory2()));
+        } else {
+            clone.setFactory(new RevealLayerFactory(clone, inflater.getFactory()));
+        }
+        return clone;
+    }
+
+    /**
+     * @return the layer a view was tagged with during inflation, if any
+     */
+    static RevealLayer getLayer(View view) {
+        return (RevealLayer) view.getTag(R.id.reveal_layer);
+    }
+
+    @Override
+    public View onCreateView(String name, Context context, AttributeSet attrs) {
+        return onCreateView(null, name, context, attrs);
+    }
+
+    public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
+        final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.BackViewLayer);
+        try {
+            if (a.getIndexCount() == 0) {
+                return null;
+            }
+            final View view = createView(parent, name, context, attrs);
+            if (view != null) {
+                view.setTag(R.id.reveal_layer, RevealLayer.fromAttributes(view, a));
+            }
+            return view;
+        } finally {
+            a.recycle();
+        }
+    }
+
+    /**
+     * @return the view created by the factory the inflater had before, if any
+     */
+    View createDelegateView(View parent, String name, Context context, AttributeSet attrs) {
+        return mDelegate != null ? mDelegate.onCreateView(name, context, attrs) : null;
+    }
+
+    private View createView(View parent, String name, Context context, AttributeSet attrs) {
+        final View delegateView = createDelegateView(parent, name, context, attrs);
+        if (delegateView != null) {
+            return delegateView;
+        }
+        try {
+            if (name.indexOf('.') != -1) {
+                return mInflater.createView(name, null, attrs);
+            }
+            for (String prefix : CLASS_PREFIXES) {
+                try {
+                    return mInflater.createView(name, prefix, attrs);
+                } catch (ClassNotFoundException e) {
+                    // try the next package
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new InflateException(attrs.getPositionDescription() + ": Error inflating class " + name, e);
+        }
+        // unknown short name: leave it to the inflater, which reports the error
+        return null;
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private static final class HoneycombFactory extends RevealLayerFactory implements LayoutInflater.Factory2 {
+
+        private final LayoutInflater.Factory2 mDelegate2;
+
+        HoneycombFactory(LayoutInflater inflater, LayoutInflater.Factory delegate, LayoutInflater.Factory2 delegate2) {
+            super(inflater, delegate);
+            mDelegate2 = delegate2;
+        }
+
+        @Override
+        View createDelegateView(View parent, String name, Context context, AttributeSet attrs) {
+            if (mDelegate2 != null) {
+                return mDelegate2.onCreateView(parent, name, context, attrs);
+            }
+            return super.createDelegateView(parent, name, context, attrs);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package me.ele.backviewlayout;
+
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * Base {@link ChildTopDetector} that recomputes its flags whenever the view
+ * tree reports a scroll change or a layout pass.
+ */
+public abstract class ScrollChangeTopDetector implements ChildTopDetector,
+        ViewTreeObserver.OnScrollChangedListener, ViewTreeObserver.OnGlobalLayoutListener {
+
+    private static final int ALL_EDGES = BackViewLayout.EDGE_TOP | BackViewLayout.EDGE_BOTTOM
+            | BackViewLayout.EDGE_START | BackViewLayout.EDGE_END;
+
+    private View mTarget;
+    // the observer registered with, the target's is a floating one once detached
+    private ViewTreeObserver mObserver;
+    private int mEdges = ALL_EDGES;
+
+    /**
+     * @return whether {@code target} is at its top right now
+     */
+    protected abstract boolean computeChildAtTop(View target);
+
+    /**
+     * @return the edges {@code target} is scrolled to right now. The other
+     * edges than the top are probed through {@link ViewCompat}.
+     */
+    protected int computeChildEdges(View target) {
+        int edges = 0;
+        if (computeChildAtTop(target)) {
+            edges |= BackViewLayout.EDGE_TOP;
+        }
+        if (!ViewCompat.canScrollVertically(target, 1)) {
+            edges |= BackViewLayout.EDGE_BOTTOM;
+        }
+        if (!ViewCompat.canScrollHorizontally(target, -1)) {
+            edges |= BackViewLayout.EDGE_START;
+        }
+        if (!ViewCompat.canScrollHorizontally(target, 1)) {
+            edges |= BackViewLayout.EDGE_END;
+        }
+        return edges;
+    }
+
+    @Override
+    public void attach(View target) {
+        if (mTarget == target) {
+            return;
+        }
+        if (mTarget != null) {
+            detach(mTarget);
+        }
+        mTarget = target;
+        // the target itself is attached after the layout, through the root
+        // this is the window's observer already
+        mObserver = target.getRootView().getViewTreeObserver();
+        mObserver.addOnScrollChangedListener(this);
+        mObserver.addOnGlobalLayoutListener(this);
+        update();
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void detach(View target) {
+        if (mTarget != target) {
+            return;
+        }
+        if (mObserver.isAlive()) {
+            mObserver.removeOnScrollChangedListener(this);
+            mObserver.removeGlobalOnLayoutListener(this);
+        }
+        mObserver = null;
+        mTarget = null;
+    }
+
+    /**
+     * Recomputes the flags from the target being tracked.
+     */
+    public void update() {
+        if (mTarget != null) {
+            mEdges = computeChildEdges(mTarget);
+        }
+    }
+
+    @Override
+    public void onScrollChanged() {
+        update();
+    }
+
+    @Override
+    public void onGlobalLayout() {
+        // e.g. new content, which moves the edges without a scroll
+        update();
+    }
+
+    /**
+     * @return the target being tracked, or null when detached
+     */
+    protected View getTarget() {
+        return mTarget;
+    }
+
+    @Override
+    public boolean isChildAtEdge(int edge) {
+        return (mEdges & edge) != 0;
+    }
+}
@@ -0,0 +1,15 @@
+package me.ele.backviewlayout;
+
+import android.view.View;
+
+/**
+ * {@link ChildTopDetector} for targets that scroll their own content, such as
+ * ScrollView and WebView.
+ */
+public class ScrollYTopDetector extends ScrollChangeTopDetector {
+
+    @Override
+    protected boolean computeChildAtTop(View target) {
+        return target.getScrollY() <= 0;
+    }
+}
@@ -0,0 +1,260 @@
+package me.ele.backviewlayout;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.support.v4.util.LruCache;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.View;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Draws text from a precomputed {@link StaticLayout}, so new text can be laid
+ * out on a background thread and swapped in without a layout pass when its
+ * height does not change. Takes the whole width it is offered and lays the
+ * text out within it.
+ * <p/>
+ * In a back view it is looked up by the id {@code back_view_text} and filled by
+ * {@link BackViewLayout#setBackViewText}.
+ */
+public class TextLayoutView extends View {
+
+    private static final int CACHE_SIZE = 8;
+
+    /**
+     * Notified on the UI thread when text laid out in the background is shown.
+     */
+    interface OnTextLayoutListener {
+
+        /**
+         * @param heightChanged whether the view needs to be measured again;
+         *                      it has not requested a layout itself
+         */
+        void onTextLayout(TextLayoutView view, boolean heightChanged);
+    }
+
+    private final TextPaint mPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private Layout.Alignment mAlignment = Layout.Alignment.ALIGN_NORMAL;
+    private CharSequence mText = "";
+    private Layout mLayout;
+    // the text of the last background request, results for older ones are dropped
+    private CharSequence mPendingText;
+    // bumped when the paint or alignment changes, layouts made before are dropped
+    private int mPaintGeneration;
+    private final LruCache<LayoutKey, Layout> mLayoutCache = new LruCache<LayoutKey, Layout>(CACHE_SIZE);
+
+    public TextLayoutView(Context context) {
+        this(context, null);
+    }
+
+    public TextLayoutView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.TextLayoutView);
+        final CharSequence text = a.getText(R.styleable.TextLayoutView_android_text);
+        if (text != null) {
+            mText = text;
+        }
+        mPaint.setTextSize(a.getDimension(R.styleable.TextLayoutView_android_textSize,
+                TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 14, getResources().getDisplayMetrics())));
+        final ColorStateList color = a.getColorStateList(R.styleable.TextLayoutView_android_textColor);
+        mPaint.setColor(color != null ? color.getDefaultColor() : 0xff000000);
+        final int gravity = a.getInt(R.styleable.TextLayoutView_android_gravity, Gravity.NO_GRAVITY);
+        if ((gravity & Gravity.HORIZONTAL_GRAVITY_MASK) == Gravity.CENTER_HORIZONTAL) {
+            mAlignment = Layout.Alignment.ALIGN_CENTER;
+        } else if ((gravity & Gravity.HORIZONTAL_GRAVITY_MASK) == Gravity.RIGHT) {
+            mAlignment = Layout.Alignment.ALIGN_OPPOSITE;
+        }
+        a.recycle();
+    }
+
+    public CharSequence getText() {
+        return mText;
+    }
+
+    /**
+     * @return the layout of the text drawn, null until the view is measured
+     */
+    public Layout getLayout() {
+        return mLayout;
+    }
+
+    /**
+     * Sets the text, laying it out on the UI thread at the next measure.
+     */
+    public void setText(CharSequence text) {
+        if (text == null) {
+            text = "";
+        }
+        mPendingText = null;
+        if (text.equals(mText)) {
+            return;
+        }
+        mText = text;
+        mLayout = null;
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * @param size the text size in pixels
+     */
+    public void setTextSize(float size) {
+        mPaint.setTextSize(size);
+        onPaintChanged();
+    }
+
+    public void setTextColor(int color) {
+        mPaint.setColor(color);
+        onPaintChanged();
+    }
+
+    /**
+     * Sets how the lines are aligned within the width of the view.
+     */
+    public void setAlignment(Layout.Alignment alignment) {
+        mAlignment = alignment;
+        onPaintChanged();
+    }
+
+    private void onPaintChanged() {
+        // cached layouts hold a copy of the old paint
+        mPaintGeneration++;
+        mLayoutCache.evictAll();
+        mLayout = null;
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Lays {@code text} out on {@code executor} and shows it from a message
+     * posted to {@code handler}, or right away when a layout for it is
+     * cached. Falls back to {@link #setText} while the view has no width yet.
+     */
+    void setTextAsync(final CharSequence text, Executor executor, final Handler handler,
+                      final OnTextLayoutListener listener) {
+        final int width = getMeasuredWidth() - getPaddingLeft() - getPaddingRight();
+        if (getMeasuredWidth() == 0 || width <= 0) {
+            setText(text);
+            return;
+        }
+        final LayoutKey key = new LayoutKey(text, width);
+        final Layout cached = mLayoutCache.get(key);
+        if (cached != null) {
+            mPendingText = null;
+            listener.onTextLayout(this, showLayout(text, cached));
+            return;
+        }
+        mPendingText = text;
+        // the background thread works on a copy, the UI thread keeps drawing with this one
+        final TextPaint paint = new TextPaint(mPaint);
+        final Layout.Alignment alignment = mAlignment;
+        final int paintGeneration = mPaintGeneration;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Layout layout = createLayout(text, paint, width, alignment);
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mPendingText != text) {
+                            return;
+                        }
+                        if (mPaintGeneration != paintGeneration) {
+                            // laid out with the old paint: lay it out again at the next measure
+                            setText(text);
+                            return;
+                        }
+                        mPendingText = null;
+                        mLayoutCache.put(key, layout);
+                        listener.onTextLayout(TextLayoutView.this, showLayout(text, layout));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return whether the height of the text changed
+     */
+    private boolean showLayout(CharSequence text, Layout layout) {
+        final boolean heightChanged = mLayout == null || mLayout.getHeight() != layout.getHeight();
+        mText = text;
+        mLayout = layout;
+        invalidate();
+        return heightChanged;
+    }
+
+    private static Layout createLayout(CharSequence text, TextPaint paint, int width, Layout.Alignment alignment) {
+        return new StaticLayout(text, paint, width, alignment, 1f, 0f, false);
+    }
+
+    private Layout obtainLayout(int width) {
+        if (mLayout != null && mLayout.getWidth() == width) {
+            return mLayout;
+        }
+        final LayoutKey key = new LayoutKey(mText, width);
+        Layout layout = mLayoutCache.get(key);
+        if (layout == null) {
+            layout = createLayout(mText, new TextPaint(mPaint), width, mAlignment);
+            mLayoutCache.put(key, layout);
+        }
+        return layout;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int paddingWidth = getPaddingLeft() + getPaddingRight();
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        if (MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED) {
+            width = (int) Math.ceil(Layout.getDesiredWidth(mText, mPaint)) + paddingWidth;
+        }
+        mLayout = obtainLayout(Math.max(0, width - paddingWidth));
+        final int height = mLayout.getHeight() + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(Math.max(height, getSuggestedMinimumHeight()), heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mLayout == null) {
+            return;
+        }
+        final int saveCount = canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        mLayout.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private static final class LayoutKey {
+
+        private final String mText;
+        private final int mWidth;
+
+        LayoutKey(CharSequence text, int width) {
+            mText = text.toString();
+            mWidth = width;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LayoutKey)) {
+                return false;
+            }
+            final LayoutKey other = (LayoutKey) o;
+            return mWidth == other.mWidth && mText.equals(other.mText);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mText.hashCode() + mWidth;
+        }
+    }
+}
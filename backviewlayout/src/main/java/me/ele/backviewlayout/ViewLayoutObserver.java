@@ -1,27 +1,137 @@
 package me.ele.backviewlayout;
 
+import android.annotation.TargetApi;
+import android.os.Build;
 import android.view.View;
 import android.view.ViewTreeObserver;
 
+import java.util.ArrayList;
+
 /**
+ * Runs actions after the next global layout of a view. Each view gets at most
+ * one registered {@link ViewTreeObserver.OnGlobalLayoutListener}, kept only
+ * while actions are pending; an action queued twice runs once, and pending
+ * actions are dropped when the view is detached.
+ * <p/>
  * Created by chensimin on 14/11/14.
  */
-public class ViewLayoutObserver {
+public class ViewLayoutObserver implements ViewTreeObserver.OnGlobalLayoutListener {
 
-    private ViewLayoutObserver() {
+    private final View mView;
+    private final ArrayList<Runnable> mPending = new ArrayList<Runnable>(2);
+    // actions being run, so they can queue new ones into mPending
+    private final ArrayList<Runnable> mRunning = new ArrayList<Runnable>(2);
+    private boolean mRegistered;
 
+    private ViewLayoutObserver(View view) {
+        mView = view;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1) {
+            DetachListener.install(view, this);
+        }
     }
 
+    /**
+     * Queues {@code runnable} to run after the next global layout of {@code view}.
+     * Does nothing if it is already queued.
+     */
     public static void whenLayoutFinished(final View view, final Runnable runnable) {
-        view.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
-            @Override
-            public void onGlobalLayout() {
-                view.getViewTreeObserver().removeGlobalOnLayoutListener(this);
-                if (runnable != null) {
-                    runnable.run();
-                }
+        if (runnable != null) {
+            get(view).enqueue(runnable);
+        }
+    }
+
+    /**
+     * Removes {@code runnable} from the actions queued for {@code view}.
+     */
+    public static void cancel(View view, Runnable runnable) {
+        final ViewLayoutObserver observer = peek(view);
+        if (observer != null) {
+            observer.mPending.remove(runnable);
+            if (observer.mPending.isEmpty()) {
+                observer.unregister();
             }
-        });
+        }
+    }
+
+    /**
+     * Drops every action queued for {@code view} and its layout listener.
+     */
+    public static void clear(View view) {
+        final ViewLayoutObserver observer = peek(view);
+        if (observer != null) {
+            observer.mPending.clear();
+            observer.unregister();
+        }
+    }
+
+    private static ViewLayoutObserver peek(View view) {
+        return (ViewLayoutObserver) view.getTag(R.id.view_layout_observer);
+    }
+
+    private static ViewLayoutObserver get(View view) {
+        ViewLayoutObserver observer = peek(view);
+        if (observer == null) {
+            observer = new ViewLayoutObserver(view);
+            view.setTag(R.id.view_layout_observer, observer);
+        }
+        return observer;
+    }
+
+    private void enqueue(Runnable runnable) {
+        if (!mPending.contains(runnable)) {
+            mPending.add(runnable);
+        }
+        if (!mRegistered) {
+            mView.getViewTreeObserver().addOnGlobalLayoutListener(this);
+            mRegistered = true;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void unregister() {
+        if (!mRegistered) {
+            return;
+        }
+        mRegistered = false;
+        final ViewTreeObserver observer = mView.getViewTreeObserver();
+        if (observer.isAlive()) {
+            observer.removeGlobalOnLayoutListener(this);
+        }
+    }
+
+    @Override
+    public void onGlobalLayout() {
+        unregister();
+        final ArrayList<Runnable> running = mRunning;
+        running.addAll(mPending);
+        mPending.clear();
+        for (int i = 0; i < running.size(); i++) {
+            running.get(i).run();
+        }
+        running.clear();
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB_MR1)
+    private static class DetachListener implements View.OnAttachStateChangeListener {
+
+        private final ViewLayoutObserver mObserver;
+
+        private DetachListener(ViewLayoutObserver observer) {
+            mObserver = observer;
+        }
+
+        static void install(View view, ViewLayoutObserver observer) {
+            view.addOnAttachStateChangeListener(new DetachListener(observer));
+        }
+
+        @Override
+        public void onViewAttachedToWindow(View v) {
+        }
 
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            mObserver.mPending.clear();
+            mObserver.unregister();
+        }
     }
 }
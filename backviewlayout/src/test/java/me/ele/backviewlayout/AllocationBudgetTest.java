@@ -0,0 +1,296 @@
+package me.ele.backviewlayout;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.v4.view.MotionEventCompat;
+import android.support.v4.view.ViewCompat;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Holds the drag and return paths to allocation budgets, phase by phase.
+ * <p/>
+ * Robolectric boxes and reflects in every framework call it shadows, so a
+ * phase is charged only for what it allocates beyond its framework calls:
+ * events are compared with a reference handler that reads the same values,
+ * frames with the calibrated cost of moving a view and reading the clock.
+ * Frames run on a {@link ManualChoreographer} instead of the looper. Each
+ * phase keeps the smallest figure of a few warm gestures, so class loading
+ * and instrumentation on first use do not count.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, shadows = SingletonAccessibilityManagerShadow.class)
+public class AllocationBudgetTest {
+
+    // bytes the library may allocate itself
+    private static final long DOWN_BUDGET = 512; // per gesture
+    private static final long MOVE_BUDGET = 0; // per move event
+    private static final long DRAG_FRAME_BUDGET = 0; // per frame
+    private static final long RELEASE_BUDGET = 512; // per gesture
+    private static final long RETURN_FRAME_BUDGET = 0; // per frame
+
+    private static final int DOWN = 0;
+    private static final int MOVES = 1;
+    private static final int DRAG_FRAMES = 2;
+    private static final int RELEASE = 3;
+    private static final int RETURN_FRAMES = 4;
+    private static final int PHASE_COUNT = 5;
+    private static final String[] PHASE_NAMES = {"down", "moves", "drag frames", "release", "return frames"};
+
+    private static final int MOVE_COUNT = 120;
+    private static final int MOVES_PER_FRAME = 2;
+    private static final int WARM_UP_GESTURES = 2;
+    private static final int MEASURED_GESTURES = 3;
+    private static final int MAX_RETURN_FRAMES = 300;
+
+    private static final Runnable NO_OP = new Runnable() {
+        @Override
+        public void run() {
+
+        }
+    };
+
+    private final ManualChoreographer clock = new ManualChoreographer();
+    private Activity activity;
+    // what the framework calls of a frame allocate under Robolectric
+    private long offsetCost;
+    private long clockCost;
+    private long showCost;
+    private long hideCost;
+    private long postCost;
+
+    @Before
+    public void setUp() {
+        assumeTrue(AllocationMeter.isSupported());
+        SingletonAccessibilityManagerShadow.reset();
+        ChoreographerCompat.setInstance(clock);
+        ShadowLooper.pauseMainLooper();
+        activity = Robolectric.setupActivity(Activity.class);
+    }
+
+    @After
+    public void tearDown() {
+        ChoreographerCompat.setInstance(null);
+    }
+
+    @Test
+    public void dragAndReturnStayWithinBudget() {
+        final CountingBackViewLayout layout = CountingBackViewLayout.attach(activity);
+        final RevealSink revealSink = new RevealSink();
+        layout.addOnRevealChangeListener(revealSink);
+        final ReferenceLayout reference = new ReferenceLayout(activity);
+        calibrate(layout.getChildAt(layout.getChildCount() - 1), layout.getChildAt(0));
+
+        final long[] library = new long[PHASE_COUNT];
+        Arrays.fill(library, Long.MAX_VALUE);
+        final Gesture measured = new Gesture();
+        final Gesture referenced = new Gesture();
+        for (int i = 0; i < WARM_UP_GESTURES + MEASURED_GESTURES; i++) {
+            measured.run(layout, layout);
+            referenced.run(reference, null);
+            if (i < WARM_UP_GESTURES) {
+                continue;
+            }
+            keepSmallest(library, DOWN, measured.bytes[DOWN] - referenced.bytes[DOWN]);
+            keepSmallest(library, MOVES, measured.bytes[MOVES] - referenced.bytes[MOVES]);
+            // the back view is shown to accessibility on the first frame and hidden on
+            // the last; the first also reads the clock to post the idle timeout
+            keepSmallest(library, DRAG_FRAMES, measured.bytes[DRAG_FRAMES] - showCost - postCost
+                    - (measured.frames[DRAG_FRAMES] + 1) * clockCost - measured.offsets[DRAG_FRAMES] * offsetCost);
+            keepSmallest(library, RELEASE, measured.bytes[RELEASE] - referenced.bytes[RELEASE]);
+            keepSmallest(library, RETURN_FRAMES, measured.bytes[RETURN_FRAMES] - hideCost
+                    - measured.offsets[RETURN_FRAMES] * offsetCost);
+        }
+
+        assertTrue(revealSink.mSink > 0);
+        assertWithinBudget(library, DOWN, DOWN_BUDGET);
+        assertWithinBudget(library, MOVES, MOVE_BUDGET * MOVE_COUNT);
+        assertWithinBudget(library, DRAG_FRAMES, DRAG_FRAME_BUDGET * measured.frames[DRAG_FRAMES]);
+        assertWithinBudget(library, RELEASE, RELEASE_BUDGET);
+        assertWithinBudget(library, RETURN_FRAMES, RETURN_FRAME_BUDGET * measured.frames[RETURN_FRAMES]);
+    }
+
+    /**
+     * Measures what moving {@code target}, reading the clock, showing and
+     * hiding {@code backView} to accessibility and posting a message allocate
+     * under Robolectric. The calls are interleaved and each keeps its smallest
+     * figure, so a one-off does not inflate the baseline; showing and hiding
+     * are measured apart, as a frame only makes one of them.
+     */
+    private void calibrate(View target, View backView) {
+        final int calls = (WARM_UP_GESTURES + 1) * MOVE_COUNT / MOVES_PER_FRAME;
+        offsetCost = clockCost = showCost = hideCost = postCost = Long.MAX_VALUE;
+        long sink = 0;
+        for (int i = 0; i < calls; i++) {
+            long start = AllocationMeter.allocatedBytes();
+            target.offsetTopAndBottom(i % 2 == 0 ? 1 : -1);
+            offsetCost = Math.min(offsetCost, AllocationMeter.allocatedBytes() - start);
+            start = AllocationMeter.allocatedBytes();
+            sink += SystemClock.uptimeMillis();
+            clockCost = Math.min(clockCost, AllocationMeter.allocatedBytes() - start);
+            start = AllocationMeter.allocatedBytes();
+            ViewCompat.setImportantForAccessibility(backView, ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_AUTO);
+            showCost = Math.min(showCost, AllocationMeter.allocatedBytes() - start);
+            start = AllocationMeter.allocatedBytes();
+            ViewCompat.setImportantForAccessibility(backView,
+                    ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS);
+            hideCost = Math.min(hideCost, AllocationMeter.allocatedBytes() - start);
+            start = AllocationMeter.allocatedBytes();
+            target.postDelayed(NO_OP, 1000);
+            postCost = Math.min(postCost, AllocationMeter.allocatedBytes() - start);
+            target.removeCallbacks(NO_OP);
+        }
+        assertTrue(sink > 0);
+    }
+
+    private static void keepSmallest(long[] library, int phase, long bytes) {
+        library[phase] = Math.min(library[phase], bytes);
+    }
+
+    private static void assertWithinBudget(long[] library, int phase, long budget) {
+        System.out.println(String.format("%-13s %6d bytes, budget %d", PHASE_NAMES[phase], library[phase], budget));
+        // a phase cannot allocate less than the framework calls it makes
+        assertTrue("the calibration of " + PHASE_NAMES[phase] + " is inconsistent: it exceeds what was measured by "
+                + -library[phase] + " bytes", library[phase] >= 0);
+        assertTrue(PHASE_NAMES[phase] + " allocated " + library[phase] + " bytes, the budget is " + budget,
+                library[phase] <= budget);
+    }
+
+    /**
+     * One pull of 360px and its return, with the bytes allocated, frames run
+     * and offset changes of each phase.
+     */
+    private class Gesture {
+
+        final long[] bytes = new long[PHASE_COUNT];
+        final int[] frames = new int[PHASE_COUNT];
+        final int[] offsets = new int[PHASE_COUNT];
+        private final MotionEvent[] events = new MotionEvent[MOVE_COUNT + 2];
+
+        /**
+         * @param layout the layout to read offsets from, or null to only run
+         *               the frames the drag posted
+         */
+        void run(ViewGroup view, BackViewLayout layout) {
+            Arrays.fill(bytes, 0);
+            Arrays.fill(frames, 0);
+            Arrays.fill(offsets, 0);
+            obtainEvents();
+
+            long start = AllocationMeter.allocatedBytes();
+            view.dispatchTouchEvent(events[0]);
+            bytes[DOWN] = AllocationMeter.allocatedBytes() - start;
+            for (int i = 1; i <= MOVE_COUNT; i++) {
+                start = AllocationMeter.allocatedBytes();
+                view.dispatchTouchEvent(events[i]);
+                bytes[MOVES] += AllocationMeter.allocatedBytes() - start;
+                if (i % MOVES_PER_FRAME == 0) {
+                    frame(DRAG_FRAMES, layout);
+                }
+            }
+            start = AllocationMeter.allocatedBytes();
+            view.dispatchTouchEvent(events[MOVE_COUNT + 1]);
+            // the return starts from a message
+            ShadowLooper.runUiThreadTasks();
+            bytes[RELEASE] = AllocationMeter.allocatedBytes() - start;
+            while (clock.hasPendingFrame() && frames[RETURN_FRAMES] < MAX_RETURN_FRAMES) {
+                frame(RETURN_FRAMES, layout);
+            }
+            recycleEvents();
+        }
+
+        private void frame(int phase, BackViewLayout layout) {
+            if (!clock.hasPendingFrame()) {
+                // e.g. within the touch slop: no frame is charged for the clock
+                return;
+            }
+            final int offset = layout != null ? layout.getCurrentOffset() : 0;
+            final long start = AllocationMeter.allocatedBytes();
+            clock.doFrame();
+            if (layout != null) {
+                // Robolectric does not draw; the reveal listener is called from here
+                layout.getViewTreeObserver().dispatchOnPreDraw();
+            }
+            bytes[phase] += AllocationMeter.allocatedBytes() - start;
+            frames[phase]++;
+            if (layout != null && layout.getCurrentOffset() != offset) {
+                offsets[phase]++;
+            }
+        }
+
+        private void obtainEvents() {
+            final long downTime = SystemClock.uptimeMillis();
+            long eventTime = downTime;
+            events[0] = MotionEvent.obtain(downTime, eventTime, MotionEvent.ACTION_DOWN, 360, 10, 0);
+            for (int i = 1; i <= MOVE_COUNT; i++) {
+                eventTime += TestGestures.MOVE_INTERVAL_MILLIS;
+                events[i] = MotionEvent.obtain(downTime, eventTime, MotionEvent.ACTION_MOVE, 360, 10 + 3 * i, 0);
+            }
+            events[MOVE_COUNT + 1] = MotionEvent.obtain(downTime, eventTime, MotionEvent.ACTION_UP,
+                    360, 10 + 3 * MOVE_COUNT, 0);
+        }
+
+        private void recycleEvents() {
+            for (int i = 0; i < events.length; i++) {
+                events[i].recycle();
+                events[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Reads every reveal change, allocating nothing itself.
+     */
+    private static class RevealSink implements BackViewLayout.OnRevealChangeListener {
+
+        long mSink;
+
+        @Override
+        public void onRevealChanged(BackViewLayout layout, int offset, float progress, int state) {
+            mSink += offset + (long) (progress * 100) + state;
+        }
+    }
+
+    /**
+     * Takes every event and reads what any drag handler has to, allocating
+     * nothing itself.
+     */
+    private static class ReferenceLayout extends FrameLayout {
+
+        long mSink;
+
+        ReferenceLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean onInterceptTouchEvent(MotionEvent ev) {
+            return true;
+        }
+
+        @Override
+        public boolean onTouchEvent(MotionEvent ev) {
+            final int pointerIndex = MotionEventCompat.findPointerIndex(ev, 0);
+            mSink += MotionEventCompat.getActionMasked(ev) + ev.getHistorySize() + ev.getEventTime()
+                    + (long) MotionEventCompat.getX(ev, pointerIndex) + (long) MotionEventCompat.getY(ev, pointerIndex);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package me.ele.backviewlayout;
+
+import android.app.Activity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Layouts share one default config and take their tuning from the one set.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class BackViewConfigTest {
+
+    private Activity activity;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.setupActivity(Activity.class);
+    }
+
+    @Test
+    public void sharesDefaultConfig() {
+        final BackViewLayout first = new BackViewLayout(activity);
+        final BackViewLayout second = new BackViewLayout(activity);
+        assertSame(BackViewConfig.get(activity), first.getConfig());
+        assertSame(first.getConfig(), second.getConfig());
+
+        final BackViewConfig config = first.getConfig();
+        first.setIdleTimeout(500);
+        assertNotSame(config, first.getConfig());
+        assertEquals(500, first.getConfig().getIdleTimeout());
+        assertEquals(config.getTouchSlop(), first.getConfig().getTouchSlop());
+        assertSame(config, second.getConfig());
+    }
+
+    @Test
+    public void appliesTouchSlop() {
+        final CountingBackViewLayout layout = CountingBackViewLayout.attach(activity);
+        layout.setConfig(new BackViewConfig.Builder(activity).setTouchSlop(400).build());
+        final long downTime = TestGestures.press(layout, 10, 200, 10);
+        ShadowLooper.idleMainLooper(GestureTraceReplayer.FRAME_MILLIS);
+        assertEquals(0, layout.getCurrentOffset());
+        TestGestures.up(layout, downTime, 200);
+
+        layout.setConfig(BackViewConfig.get(activity));
+        final long secondDownTime = TestGestures.press(layout, 10, 200, 10);
+        ShadowLooper.idleMainLooper(GestureTraceReplayer.FRAME_MILLIS);
+        assertTrue(layout.getCurrentOffset() > 0);
+        TestGestures.up(layout, secondDownTime, 200);
+        ShadowLooper.idleMainLooper(2000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDampingAboveOne() {
+        new BackViewConfig.Builder(activity).setDampingFactor(2);
+    }
+}
@@ -0,0 +1,119 @@
+package me.ele.backviewlayout;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Layouts sharing a {@link BackViewPool} pass one back view between them.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class BackViewPoolTest {
+
+    private Activity activity;
+    private FrameLayout pages;
+    private final List<BackViewLayout> bound = new ArrayList<BackViewLayout>();
+    private final BackViewLayout.OnBindBackViewListener binder = new BackViewLayout.OnBindBackViewListener() {
+        @Override
+        public void onBindBackView(BackViewLayout layout, View backView, int edge) {
+            assertEquals(BackViewLayout.EDGE_TOP, edge);
+            bound.add(layout);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.setupActivity(Activity.class);
+        pages = new FrameLayout(activity);
+        activity.setContentView(pages);
+    }
+
+    @Test
+    public void lendsOneBackViewAtATime() {
+        final BackViewPool pool = new BackViewPool();
+        final BackViewLayout first = newPage(pool);
+        final BackViewLayout second = newPage(pool);
+        assertEquals(1, first.getChildCount());
+        assertEquals(1, second.getChildCount());
+
+        final View backView = pull(first);
+        assertNull(backView.getParent());
+        assertEquals(1, bound.size());
+        assertSame(first, bound.get(0));
+
+        assertSame(backView, pull(second));
+        assertEquals(1, first.getChildCount());
+        assertSame(second, bound.get(1));
+    }
+
+    @Test
+    public void inflatesAgainWhilePoolIsEmpty() {
+        final BackViewPool pool = new BackViewPool();
+        final BackViewLayout page = newPage(pool);
+        pull(page);
+        pool.clear();
+        assertNotNull(pull(page));
+    }
+
+    @Test
+    public void borrowerWithoutTextShowsDefaultText() {
+        final BackViewPool pool = new BackViewPool();
+        final BackViewLayout first = newPage(pool);
+        final BackViewLayout second = newPage(pool);
+        first.setBackViewText("Provided by example.com");
+        final TextLayoutView textView = (TextLayoutView) pull(first).findViewById(R.id.back_view_text);
+        assertEquals("Provided by example.com", textView.getText().toString());
+
+        assertSame(textView, pull(second).findViewById(R.id.back_view_text));
+        assertEquals(activity.getText(R.string.line_1).toString(), textView.getText().toString());
+    }
+
+    private BackViewLayout newPage(BackViewPool pool) {
+        final BackViewLayout page = new BackViewLayout(activity);
+        page.setBackViewInflation(BackViewLayout.INFLATE_ON_DRAG);
+        page.setBackViewPool(pool);
+        page.setOnBindBackViewListener(binder);
+        page.addView(new View(activity), new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        pages.addView(page);
+        page.measure(View.MeasureSpec.makeMeasureSpec(CountingBackViewLayout.WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(CountingBackViewLayout.HEIGHT, View.MeasureSpec.EXACTLY));
+        page.layout(0, 0, CountingBackViewLayout.WIDTH, CountingBackViewLayout.HEIGHT);
+        return page;
+    }
+
+    /**
+     * Pulls {@code page} and lets it return.
+     *
+     * @return the back view it showed while pulled
+     */
+    private View pull(BackViewLayout page) {
+        final long downTime = TestGestures.press(page, 10, 300, 20);
+        ShadowLooper.idleMainLooper(GestureTraceReplayer.FRAME_MILLIS);
+        assertEquals(2, page.getChildCount());
+        final View backView = page.getChildAt(0);
+        TestGestures.up(page, downTime, 300);
+        ShadowLooper.idleMainLooper(2000);
+        assertEquals(0, page.getCurrentOffset());
+        assertEquals(1, page.getChildCount());
+        return backView;
+    }
+}
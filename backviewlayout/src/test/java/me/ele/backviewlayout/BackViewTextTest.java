@@ -0,0 +1,132 @@
+package me.ele.backviewlayout;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.text.Layout;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Back view text is laid out in the background and swapped in without a
+ * layout pass of the container.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class BackViewTextTest {
+
+    private CountingBackViewLayout layout;
+    private TextLayoutView textView;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        layout = CountingBackViewLayout.attach(activity);
+        textView = (TextLayoutView) layout.getChildAt(0).findViewById(R.id.back_view_text);
+        layout.resetCounts();
+    }
+
+    @Test
+    public void defaultBackViewIsOneView() {
+        assertSame(layout.getChildAt(0), textView);
+        final DefaultBackView backView = (DefaultBackView) textView;
+        final int height = backView.getMeasuredHeight();
+        backView.setSubtitle("Second line");
+        assertEquals("Second line", backView.getSubtitle().toString());
+        assertTrue(backView.isLayoutRequested());
+        backView.measure(View.MeasureSpec.makeMeasureSpec(CountingBackViewLayout.WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        assertEquals(height, backView.getMeasuredHeight());
+    }
+
+    @Test
+    public void bindsWithoutLayout() throws InterruptedException {
+        layout.setBackViewText("Provided by example.com");
+        awaitText("Provided by example.com");
+        assertEquals(0, layout.measures);
+        assertEquals(0, layout.layouts);
+    }
+
+    @Test
+    public void bindsBackViewAttachedLater() {
+        final BackViewPool pool = new BackViewPool();
+        layout.setBackViewPool(pool);
+        layout.setBackViewText("Provided by example.com");
+        final long downTime = TestGestures.press(layout, 10, 300, 20);
+        ShadowLooper.idleMainLooper(GestureTraceReplayer.FRAME_MILLIS);
+        final TextLayoutView attached = (TextLayoutView) layout.getChildAt(0).findViewById(R.id.back_view_text);
+        assertEquals("Provided by example.com", attached.getText().toString());
+        TestGestures.up(layout, downTime, 300);
+        ShadowLooper.idleMainLooper(2000);
+    }
+
+    @Test
+    public void reusesCachedLayout() throws InterruptedException {
+        final CharSequence original = textView.getText();
+        layout.setBackViewText("Provided by example.com");
+        awaitText("Provided by example.com");
+        layout.setBackViewText(original);
+        // laid out for this width before, shown without waiting for the background thread
+        assertEquals(original.toString(), textView.getText().toString());
+    }
+
+    @Test
+    public void dropsLayoutOfOldPaint() {
+        final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        final TextLayoutView.OnTextLayoutListener listener = new TextLayoutView.OnTextLayoutListener() {
+            @Override
+            public void onTextLayout(TextLayoutView view, boolean heightChanged) {
+            }
+        };
+        textView.setTextAsync("Provided by example.com", executor, new Handler(), listener);
+        textView.setTextColor(0xffff0000);
+        tasks.get(0).run();
+        ShadowLooper.idleMainLooper();
+        // laid out with the old color: not shown, laid out again at the next measure
+        assertEquals("Provided by example.com", textView.getText().toString());
+        assertNull(textView.getLayout());
+        assertTrue(textView.isLayoutRequested());
+
+        measureText();
+        final Layout measured = textView.getLayout();
+        textView.setText("");
+        measureText();
+        textView.setTextAsync("Provided by example.com", executor, new Handler(), listener);
+        // the layout cached for the text is the one of the new paint
+        assertEquals(1, tasks.size());
+        assertSame(measured, textView.getLayout());
+    }
+
+    private void measureText() {
+        textView.measure(View.MeasureSpec.makeMeasureSpec(textView.getMeasuredWidth(), View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+    }
+
+    private void awaitText(String text) throws InterruptedException {
+        for (int i = 0; i < 200 && !text.equals(textView.getText().toString()); i++) {
+            Thread.sleep(5);
+            ShadowLooper.idleMainLooper();
+        }
+        assertEquals(text, textView.getText().toString());
+    }
+}
@@ -0,0 +1,78 @@
+package me.ele.backviewlayout;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Touches on the strip the pulled content exposes reach the back view in
+ * every offset mode.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class BackViewTouchTest {
+
+    private final ManualChoreographer clock = new ManualChoreographer();
+    private Activity activity;
+    private final StringBuilder touches = new StringBuilder();
+
+    @Before
+    public void setUp() {
+        ChoreographerCompat.setInstance(clock);
+        ShadowLooper.pauseMainLooper();
+        activity = Robolectric.setupActivity(Activity.class);
+        // the window is attached by its first traversal
+        ShadowLooper.runUiThreadTasks();
+    }
+
+    @After
+    public void tearDown() {
+        ChoreographerCompat.setInstance(null);
+    }
+
+    @Test
+    public void tapsRevealedBackView() {
+        final int[] modes = {
+                BackViewLayout.OFFSET_LAYOUT, BackViewLayout.OFFSET_TRANSLATION, BackViewLayout.OFFSET_CANVAS};
+        for (int mode : modes) {
+            final CountingBackViewLayout layout = CountingBackViewLayout.attach(activity);
+            layout.setOffsetMode(mode);
+            final View backView = layout.getChildAt(0);
+            backView.setOnTouchListener(new View.OnTouchListener() {
+                @Override
+                public boolean onTouch(View v, MotionEvent event) {
+                    touches.append(event.getActionMasked()).append('@').append((int) event.getY()).append(' ');
+                    return true;
+                }
+            });
+            final long downTime = TestGestures.press(layout, 10, 300, 10);
+            clock.doFrame();
+            TestGestures.up(layout, downTime, 300);
+            final int offset = layout.getCurrentOffset();
+            assertTrue(offset > 0);
+
+            touches.setLength(0);
+            final long tapTime = SystemClock.uptimeMillis();
+            TestGestures.dispatch(layout, tapTime, tapTime, MotionEvent.ACTION_DOWN, offset / 2);
+            TestGestures.dispatch(layout, tapTime, tapTime + 50, MotionEvent.ACTION_UP, offset / 2);
+            // as is, and the content is left where it was
+            final int y = offset / 2 - backView.getTop();
+            assertEquals("mode " + mode, MotionEvent.ACTION_DOWN + "@" + y + " " + MotionEvent.ACTION_UP + "@" + y + " ",
+                    touches.toString());
+            assertEquals(offset, layout.getCurrentOffset());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package me.ele.backviewlayout;
+
+import android.app.Activity;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The default detector probes its target on scrolls of the target only, never
+ * per gesture, and leaves the window's observer when the layout is detached.
+ * The layout reads every edge from it.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ChildTopDetectorTest {
+
+    private Activity activity;
+    private CountingBackViewLayout layout;
+    private View target;
+    private CountingDetector detector;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.setupActivity(Activity.class);
+        layout = CountingBackViewLayout.attach(activity);
+        target = layout.getChildAt(layout.getChildCount() - 1);
+        detector = new CountingDetector();
+        layout.setChildTopDetector(detector);
+    }
+
+    @Test
+    public void probesOnTargetScrollsOnly() {
+        detector.probes = 0;
+        dispatchScrollChanged();
+        assertEquals(0, detector.probes);
+
+        target.scrollTo(0, 10);
+        dispatchScrollChanged();
+        assertEquals(1, detector.probes);
+    }
+
+    @Test
+    public void gestureReadsCachedEdges() {
+        detector.probes = 0;
+        final long downTime = TestGestures.press(layout, 10, 300, 10);
+        TestGestures.up(layout, downTime, 300);
+        assertEquals(0, detector.probes);
+    }
+
+    @Test
+    public void pullsOnlyFromEdgesDetectorReports() {
+        layout.setRevealEdges(BackViewLayout.EDGE_BOTTOM);
+        final FixedDetector fixed = new FixedDetector();
+        layout.setChildTopDetector(fixed);
+        TestGestures.press(layout, 900, 600, 10);
+        assertEquals(0, layout.getCurrentOffset());
+        TestGestures.dispatch(layout, 0, 0, MotionEvent.ACTION_CANCEL, 600);
+
+        fixed.edges = BackViewLayout.EDGE_BOTTOM;
+        TestGestures.press(layout, 900, 600, 10);
+        ShadowLooper.idleMainLooper(GestureTraceReplayer.FRAME_MILLIS);
+        assertTrue(layout.getCurrentOffset() > 0);
+    }
+
+    @Test
+    public void reattachRegistersOnce() {
+        for (int i = 0; i < 3; i++) {
+            activity.setContentView(new View(activity));
+            activity.setContentView(layout);
+        }
+        detector.callbacks = 0;
+        dispatchScrollChanged();
+        assertEquals(1, detector.callbacks);
+
+        activity.setContentView(new View(activity));
+        dispatchScrollChanged();
+        assertEquals(1, detector.callbacks);
+    }
+
+    private void dispatchScrollChanged() {
+        final ViewTreeObserver observer = activity.getWindow().getDecorView().getViewTreeObserver();
+        ReflectionHelpers.callInstanceMethod(observer, "dispatchOnScrollChanged");
+    }
+
+    private static class FixedDetector implements ChildTopDetector {
+
+        int edges;
+
+        @Override
+        public void attach(View target) {
+
+        }
+
+        @Override
+        public void detach(View target) {
+
+        }
+
+        @Override
+        public boolean isChildAtEdge(int edge) {
+            return (edges & edge) != 0;
+        }
+    }
+
+    private static class CountingDetector extends CanScrollVerticallyTopDetector {
+
+        int probes;
+        int callbacks;
+
+        @Override
+        public void onScrollChanged() {
+            callbacks++;
+            super.onScrollChanged();
+        }
+
+        @Override
+        protected boolean computeChildAtTop(View target) {
+            probes++;
+            return super.computeChildAtTop(target);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package me.ele.backviewlayout;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+/**
+ * A {@link BackViewLayout} that counts its measure and layout passes and the
+ * invalidations its children push through it.
+ */
+class CountingBackViewLayout extends BackViewLayout {
+
+    static final int WIDTH = 720;
+    static final int HEIGHT = 1280;
+
+    int measures;
+    int layouts;
+    int invalidates;
+
+    CountingBackViewLayout(Context context) {
+        super(context);
+    }
+
+    /**
+     * @return a layout around a plain content view, attached to
+     * {@code activity} and laid out at {@link #WIDTH} x {@link #HEIGHT}
+     */
+    static CountingBackViewLayout attach(Activity activity) {
+        final CountingBackViewLayout layout = new CountingBackViewLayout(activity);
+        layout.addView(new View(activity), new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        activity.setContentView(layout);
+        layout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        layout.layout(0, 0, WIDTH, HEIGHT);
+        return layout;
+    }
+
+    void resetCounts() {
+        measures = layouts = invalidates = 0;
+    }
+
+    @Override
+    public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        measures++;
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        layouts++;
+        super.onLayout(changed, l, t, r, b);
+    }
+
+    @Override
+    public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+        invalidates++;
+        return super.invalidateChildInParent(location, dirty);
+    }
+}
@@ -0,0 +1,120 @@
+package me.ele.backviewlayout;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * All the layouts of a thread are stepped from one frame callback, which is
+ * only posted while one of them animates.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class FrameSchedulerTest {
+
+    private static final int MAX_FRAMES = 300;
+
+    private final ManualChoreographer clock = new ManualChoreographer();
+    private Activity activity;
+
+    @Before
+    public void setUp() {
+        ChoreographerCompat.setInstance(clock);
+        ShadowLooper.pauseMainLooper();
+        activity = Robolectric.setupActivity(Activity.class);
+        // the window is attached by its first traversal
+        ShadowLooper.runUiThreadTasks();
+    }
+
+    @After
+    public void tearDown() {
+        ChoreographerCompat.setInstance(null);
+    }
+
+    @Test
+    public void layoutsReturnFromOneFrameCallback() {
+        final FrameLayout parent = new FrameLayout(activity);
+        final BackViewLayout first = addLayout(parent);
+        final BackViewLayout second = addLayout(parent);
+        activity.setContentView(parent);
+        layout(first);
+        layout(second);
+
+        final long firstDown = TestGestures.press(first, 10, 200, 10);
+        final long secondDown = TestGestures.press(second, 10, 300, 10);
+        assertEquals(1, clock.getPendingCount());
+        clock.doFrame();
+        TestGestures.up(first, firstDown, 200);
+        TestGestures.up(second, secondDown, 300);
+        // the returns start from messages
+        ShadowLooper.runUiThreadTasks();
+        assertTrue(first.getCurrentOffset() > 0 && second.getCurrentOffset() > 0);
+
+        for (int i = 0; i < MAX_FRAMES && clock.hasPendingFrame(); i++) {
+            assertEquals(1, clock.getPendingCount());
+            clock.doFrame();
+        }
+        assertEquals(0, first.getCurrentOffset());
+        assertEquals(0, second.getCurrentOffset());
+    }
+
+    @Test
+    public void cancelledTaskSkipsTheCurrentFrame() {
+        final FrameScheduler scheduler = FrameScheduler.getInstance();
+        final CountingTask cancelled = new CountingTask();
+        scheduler.schedule(new FrameScheduler.Task() {
+            @Override
+            public boolean doFrame(long frameTimeNanos) {
+                scheduler.cancel(cancelled);
+                return false;
+            }
+        });
+        scheduler.schedule(cancelled);
+        scheduler.schedule(cancelled);
+        assertEquals(1, clock.getPendingCount());
+
+        clock.doFrame();
+        assertEquals(0, cancelled.frames);
+        assertFalse(clock.hasPendingFrame());
+    }
+
+    private static BackViewLayout addLayout(ViewGroup parent) {
+        final BackViewLayout layout = new BackViewLayout(parent.getContext());
+        layout.addView(new View(parent.getContext()), new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        parent.addView(layout, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        return layout;
+    }
+
+    private static void layout(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(CountingBackViewLayout.WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(CountingBackViewLayout.HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, CountingBackViewLayout.WIDTH, CountingBackViewLayout.HEIGHT);
+    }
+
+    private static class CountingTask implements FrameScheduler.Task {
+
+        int frames;
+
+        @Override
+        public boolean doFrame(long frameTimeNanos) {
+            frames++;
+            return false;
+        }
+    }
+}
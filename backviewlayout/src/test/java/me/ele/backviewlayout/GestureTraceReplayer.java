@@ -0,0 +1,143 @@
+package me.ele.backviewlayout;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+import org.robolectric.Robolectric;
+import org.robolectric.Shadows;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowMotionEvent;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replays a {@link GestureTrace} into a {@link CountingBackViewLayout} with
+ * the original event timing, running the main looper one frame at a time in
+ * between, and records the offset after every event and frame.
+ */
+final class GestureTraceReplayer {
+
+    static final long FRAME_MILLIS = 16;
+    private static final long SETTLE_LIMIT_MILLIS = 5000;
+
+    private GestureTraceReplayer() {
+
+    }
+
+    static Result replay(CountingBackViewLayout layout, GestureTrace trace) {
+        final Result result = new Result();
+        final List<GestureTrace.Event> events = trace.getEvents();
+        final long base = SystemClock.uptimeMillis();
+        final long shift = events.isEmpty() ? 0 : base - events.get(0).eventTime;
+        layout.resetCounts();
+        for (int i = 0; i < events.size(); i++) {
+            final GestureTrace.Event event = events.get(i);
+            for (int h = 0; h < event.getHistorySize(); h++) {
+                advanceTo(layout, result, base, event.historicalTimes[h] + shift);
+                dispatch(layout, event, shift, h);
+                result.sample(SystemClock.uptimeMillis() - base, layout.getCurrentOffset());
+            }
+            advanceTo(layout, result, base, event.eventTime + shift);
+            dispatch(layout, event, shift, -1);
+            result.sample(SystemClock.uptimeMillis() - base, layout.getCurrentOffset());
+        }
+        // let the content return and the idle timer fire
+        final long limit = SystemClock.uptimeMillis() + SETTLE_LIMIT_MILLIS;
+        do {
+            advanceTo(layout, result, base, SystemClock.uptimeMillis() + FRAME_MILLIS);
+        } while ((layout.getCurrentOffset() != 0 || Robolectric.getForegroundThreadScheduler().size() > 0)
+                && SystemClock.uptimeMillis() < limit);
+        result.measures = layout.measures;
+        result.layouts = layout.layouts;
+        result.invalidates = layout.invalidates;
+        return result;
+    }
+
+    /**
+     * Dispatches the event, or its historical sample {@code h}. Robolectric's
+     * MotionEvent shadow neither batches samples nor takes pointer properties,
+     * so a historical sample goes in as a move of its own and only the first
+     * two pointers are kept.
+     */
+    private static void dispatch(CountingBackViewLayout layout, GestureTrace.Event event, long shift, int h) {
+        final int pointerCount = event.getPointerCount();
+        final float[] x = h < 0 ? event.x : event.historicalX;
+        final float[] y = h < 0 ? event.y : event.historicalY;
+        final int first = h < 0 ? 0 : h * pointerCount;
+        final MotionEvent motionEvent = MotionEvent.obtain(event.downTime + shift,
+                (h < 0 ? event.eventTime : event.historicalTimes[h]) + shift,
+                h < 0 ? event.action : MotionEvent.ACTION_MOVE, x[first], y[first], 0);
+        final ShadowMotionEvent shadow = Shadows.shadowOf(motionEvent);
+        if (pointerCount > 1) {
+            shadow.setPointer2(x[first + 1], y[first + 1]);
+        }
+        shadow.setPointerIds(event.pointerIds[0], pointerCount > 1 ? event.pointerIds[1] : 1);
+        shadow.setPointerIndex(h < 0 ? (event.action & MotionEvent.ACTION_POINTER_INDEX_MASK)
+                >> MotionEvent.ACTION_POINTER_INDEX_SHIFT : 0);
+        layout.dispatchTouchEvent(motionEvent);
+        motionEvent.recycle();
+    }
+
+    private static void advanceTo(CountingBackViewLayout layout, Result result, long base, long time) {
+        long now = SystemClock.uptimeMillis();
+        while (now < time) {
+            ShadowLooper.idleMainLooper(Math.min(FRAME_MILLIS, time - now));
+            now = SystemClock.uptimeMillis();
+            result.sample(now - base, layout.getCurrentOffset());
+        }
+    }
+
+    /**
+     * The offset timeline as (time since the first event, offset) pairs, plus
+     * the measure/layout/invalidate passes the replay caused.
+     */
+    static final class Result {
+        private long[] times = new long[256];
+        private int[] offsets = new int[256];
+        private int size;
+        int measures;
+        int layouts;
+        int invalidates;
+
+        void sample(long time, int offset) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            times[size] = time;
+            offsets[size] = offset;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long timeAt(int index) {
+            return times[index];
+        }
+
+        int offsetAt(int index) {
+            return offsets[index];
+        }
+
+        int peakOffset() {
+            int peak = 0;
+            for (int i = 0; i < size; i++) {
+                peak = Math.max(peak, offsets[i]);
+            }
+            return peak;
+        }
+
+        int finalOffset() {
+            return size == 0 ? 0 : offsets[size - 1];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("samples=%d peak=%d final=%d measures=%d layouts=%d invalidates=%d",
+                    size, peakOffset(), finalOffset(), measures, layouts, invalidates);
+        }
+    }
+}
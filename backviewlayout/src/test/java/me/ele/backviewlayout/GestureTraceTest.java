@@ -0,0 +1,163 @@
+package me.ele.backviewlayout;
+
+import android.app.Activity;
+import android.content.pm.ApplicationInfo;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Records gestures with {@link GestureTraceRecorder} and replays them with
+ * {@link GestureTraceReplayer}; a replayed trace must produce the same offset
+ * timeline every time.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class GestureTraceTest {
+
+    private Activity activity;
+
+    @Before
+    public void setUp() {
+        RuntimeEnvironment.application.getApplicationInfo().flags |= ApplicationInfo.FLAG_DEBUGGABLE;
+        activity = Robolectric.setupActivity(Activity.class);
+    }
+
+    @Test
+    public void roundTripsPointers() throws IOException {
+        final GestureTraceRecorder recorder = new GestureTraceRecorder();
+        final long downTime = SystemClock.uptimeMillis();
+        final MotionEvent event = MotionEvent.obtain(downTime, downTime + 8, MotionEvent.ACTION_MOVE, 5, 20, 0);
+        Shadows.shadowOf(event).setPointer2(15, 50);
+        Shadows.shadowOf(event).setPointerIds(0, 3);
+        recorder.record(event);
+        event.recycle();
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        recorder.writeTo(bytes);
+        final GestureTrace trace = GestureTrace.read(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(1, trace.getEvents().size());
+        final GestureTrace.Event read = trace.getEvents().get(0);
+        assertEquals(MotionEvent.ACTION_MOVE, read.action);
+        assertEquals(downTime, read.downTime);
+        assertEquals(downTime + 8, read.eventTime);
+        assertArrayEquals(new int[]{0, 3}, read.pointerIds);
+        assertArrayEquals(new float[]{5, 15}, read.x, 0);
+        assertArrayEquals(new float[]{20, 50}, read.y, 0);
+        assertEquals(0, read.getHistorySize());
+    }
+
+    @Test
+    public void readsHistoricalSamples() throws IOException {
+        // one move of two pointers with one historical sample, as laid out in GestureTrace
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(GestureTrace.MAGIC);
+        out.writeByte(GestureTrace.VERSION);
+        out.writeByte(GestureTrace.RECORD);
+        out.writeInt(MotionEvent.ACTION_MOVE);
+        out.writeLong(100);
+        out.writeLong(108);
+        out.writeByte(2);
+        out.writeByte(0);
+        out.writeFloat(5);
+        out.writeFloat(20);
+        out.writeByte(3);
+        out.writeFloat(15);
+        out.writeFloat(50);
+        out.writeShort(1);
+        out.writeLong(104);
+        out.writeFloat(4);
+        out.writeFloat(10);
+        out.writeFloat(14);
+        out.writeFloat(40);
+
+        final GestureTrace.Event read = GestureTrace.read(new ByteArrayInputStream(bytes.toByteArray()))
+                .getEvents().get(0);
+        assertEquals(2, read.getPointerCount());
+        assertArrayEquals(new long[]{104}, read.historicalTimes);
+        assertArrayEquals(new float[]{4, 14}, read.historicalX, 0);
+        assertArrayEquals(new float[]{10, 40}, read.historicalY, 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherData() throws IOException {
+        GestureTrace.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5}));
+    }
+
+    @Test
+    public void replayIsRepeatable() {
+        final GestureTraceRecorder recorder = new GestureTraceRecorder();
+        final CountingBackViewLayout recorded = newLayout();
+        recorded.setGestureTraceRecorder(recorder);
+        TestGestures.drag(recorded, 10, 400, 30);
+        final GestureTrace trace = recorder.toTrace();
+        assertEquals(recorder.getEventCount(), trace.getEvents().size());
+
+        final GestureTraceReplayer.Result first = GestureTraceReplayer.replay(newLayout(), trace);
+        final GestureTraceReplayer.Result second = GestureTraceReplayer.replay(newLayout(), trace);
+        assertTrue(first.peakOffset() > 0);
+        assertEquals(0, first.finalOffset());
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.timeAt(i), second.timeAt(i));
+            assertEquals("offset at " + first.timeAt(i) + "ms", first.offsetAt(i), second.offsetAt(i));
+        }
+        assertEquals(first.measures, second.measures);
+        assertEquals(first.layouts, second.layouts);
+        assertEquals(first.invalidates, second.invalidates);
+    }
+
+    @Test
+    public void replayIsTheSameInEveryOffsetMode() {
+        final GestureTraceRecorder recorder = new GestureTraceRecorder();
+        final CountingBackViewLayout recorded = newLayout();
+        recorded.setGestureTraceRecorder(recorder);
+        TestGestures.drag(recorded, 10, 400, 30);
+        final GestureTrace trace = recorder.toTrace();
+
+        final GestureTraceReplayer.Result layout = GestureTraceReplayer.replay(newLayout(), trace);
+        final int[] modes = {BackViewLayout.OFFSET_TRANSLATION, BackViewLayout.OFFSET_CANVAS};
+        for (int mode : modes) {
+            final CountingBackViewLayout moved = newLayout();
+            moved.setOffsetMode(mode);
+            final GestureTraceReplayer.Result result = GestureTraceReplayer.replay(moved, trace);
+            assertEquals(layout.size(), result.size());
+            for (int i = 0; i < layout.size(); i++) {
+                assertEquals("offset at " + layout.timeAt(i) + "ms", layout.offsetAt(i), result.offsetAt(i));
+            }
+            assertEquals(0, moved.getChildAt(moved.getChildCount() - 1).getTop());
+        }
+    }
+
+    @Test
+    public void ignoresRecorderWhenNotDebuggable() {
+        RuntimeEnvironment.application.getApplicationInfo().flags &= ~ApplicationInfo.FLAG_DEBUGGABLE;
+        final GestureTraceRecorder recorder = new GestureTraceRecorder();
+        final CountingBackViewLayout layout = newLayout();
+        layout.setGestureTraceRecorder(recorder);
+        TestGestures.drag(layout, 10, 100, 5);
+        assertEquals(0, recorder.getEventCount());
+    }
+
+    private CountingBackViewLayout newLayout() {
+        return CountingBackViewLayout.attach(activity);
+    }
+}
@@ -0,0 +1,122 @@
+package me.ele.backviewlayout;
+
+import android.app.Activity;
+import android.content.pm.ApplicationInfo;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The hot path guard reports work done during a reveal gesture, and only
+ * then. The guard runs on every frame of a gesture, so frames are run by hand
+ * on a {@link ManualChoreographer}.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class HotPathGuardTest {
+
+    private static final int MAX_FRAMES = 300;
+
+    private final ManualChoreographer clock = new ManualChoreographer();
+    private Activity activity;
+    private CountingBackViewLayout layout;
+    private View content;
+    private HotPathPolicies.Counter counter;
+
+    @Before
+    public void setUp() {
+        RuntimeEnvironment.application.getApplicationInfo().flags |= ApplicationInfo.FLAG_DEBUGGABLE;
+        ChoreographerCompat.setInstance(clock);
+        ShadowLooper.pauseMainLooper();
+        activity = Robolectric.setupActivity(Activity.class);
+        // the window is attached by its first traversal
+        ShadowLooper.runUiThreadTasks();
+        layout = CountingBackViewLayout.attach(activity);
+        content = layout.getChildAt(layout.getChildCount() - 1);
+        counter = new HotPathPolicies.Counter();
+        layout.setHotPathPolicy(counter);
+    }
+
+    @After
+    public void tearDown() {
+        ChoreographerCompat.setInstance(null);
+    }
+
+    @Test
+    public void reportsLayoutDuringGesture() {
+        content.requestLayout();
+        relayout();
+        assertEquals(0, counter.getCount(HotPathPolicy.VIOLATION_REQUEST_LAYOUT));
+
+        final long downTime = TestGestures.press(layout, 10, 200, 10);
+        clock.doFrame();
+        assertTrue(layout.getCurrentOffset() > 0);
+        content.requestLayout();
+        relayout();
+        assertEquals(1, counter.getCount(HotPathPolicy.VIOLATION_REQUEST_LAYOUT));
+        assertEquals(1, counter.getCount(HotPathPolicy.VIOLATION_MEASURE));
+        assertEquals(1, counter.getCount(HotPathPolicy.VIOLATION_LAYOUT));
+
+        release(downTime, 200);
+        counter.reset();
+        content.requestLayout();
+        relayout();
+        assertEquals(0, counter.getCount(HotPathPolicy.VIOLATION_REQUEST_LAYOUT));
+        assertEquals(0, counter.getCount(HotPathPolicy.VIOLATION_MEASURE));
+    }
+
+    @Test
+    public void reportsDroppedFrames() {
+        final long downTime = TestGestures.press(layout, 10, 200, 10);
+        clock.doFrame();
+        clock.doFrame();
+        assertEquals(0, counter.getCount(HotPathPolicy.VIOLATION_SLOW_WORK));
+        clock.skipFrames(3);
+        clock.doFrame();
+        assertEquals(1, counter.getCount(HotPathPolicy.VIOLATION_SLOW_WORK));
+        release(downTime, 200);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void throwPolicyFailsFast() {
+        layout.setHotPathPolicy(HotPathPolicies.THROW);
+        TestGestures.press(layout, 10, 200, 10);
+        content.requestLayout();
+    }
+
+    @Test
+    public void ignoredWhenNotDebuggable() {
+        RuntimeEnvironment.application.getApplicationInfo().flags &= ~ApplicationInfo.FLAG_DEBUGGABLE;
+        final CountingBackViewLayout released = CountingBackViewLayout.attach(activity);
+        released.setHotPathPolicy(HotPathPolicies.THROW);
+        TestGestures.press(released, 10, 200, 10);
+        released.getChildAt(released.getChildCount() - 1).requestLayout();
+    }
+
+    private void relayout() {
+        layout.measure(View.MeasureSpec.makeMeasureSpec(CountingBackViewLayout.WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(CountingBackViewLayout.HEIGHT, View.MeasureSpec.EXACTLY));
+        layout.layout(0, 0, CountingBackViewLayout.WIDTH, CountingBackViewLayout.HEIGHT);
+    }
+
+    private void release(long downTime, float y) {
+        TestGestures.up(layout, downTime, y);
+        // the return starts from a message
+        for (int i = 0; i < MAX_FRAMES && layout.getCurrentOffset() != 0; i++) {
+            ShadowLooper.idleMainLooper(GestureTraceReplayer.FRAME_MILLIS);
+            clock.doFrame();
+        }
+        assertEquals(0, layout.getCurrentOffset());
+    }
+}
@@ -0,0 +1,310 @@
+package me.ele.backviewlayout;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+import android.view.ViewGroup;
+import android.webkit.WebView;
+import android.widget.ListView;
+import android.widget.ScrollView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counts and times measure/layout passes of {@link BackViewLayout} around
+ * common content views, and the frames of a pull in each offset mode. Results
+ * are printed per content type; the assertions guard the passes that must not
+ * reach the children at all. Robolectric does not render, so the frame times
+ * only compare the work done on the UI thread.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class LayoutBenchmarkTest {
+
+    private static final int WIDTH = 720;
+    private static final int HEIGHT = 1280;
+    private static final int PASSES = 500;
+    private static final int[] OFFSET_MODES = {
+            BackViewLayout.OFFSET_LAYOUT, BackViewLayout.OFFSET_TRANSLATION, BackViewLayout.OFFSET_CANVAS};
+    private static final String[] OFFSET_MODE_NAMES = {"layout", "translate", "canvas"};
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.application;
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @Test
+    public void listView() {
+        benchmark("ListView", new CountingListView(context));
+        for (int mode : OFFSET_MODES) {
+            benchmarkFrames("ListView", new CountingListView(context), mode);
+        }
+    }
+
+    @Test
+    public void scrollView() {
+        benchmark("ScrollView", new CountingScrollView(context));
+        for (int mode : OFFSET_MODES) {
+            benchmarkFrames("ScrollView", new CountingScrollView(context), mode);
+        }
+    }
+
+    @Test
+    public void webView() {
+        benchmark("WebView", new CountingWebView(context));
+        for (int mode : OFFSET_MODES) {
+            benchmarkFrames("WebView", new CountingWebView(context), mode);
+        }
+    }
+
+    private void benchmark(String name, View content) {
+        final Counter counter = (Counter) content;
+        final BackViewLayout layout = new BackViewLayout(context);
+        layout.addView(content, new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        final int widthSpec = View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY);
+        final int heightSpec = View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY);
+        pass(layout, widthSpec, heightSpec);
+
+        // repeated passes with unchanged specs and content
+        counter.reset();
+        long start = System.nanoTime();
+        for (int i = 0; i < PASSES; i++) {
+            pass(layout, widthSpec, heightSpec);
+        }
+        report(name, "steady", counter, System.nanoTime() - start);
+        assertEquals(0, counter.measures());
+        assertEquals(0, counter.layouts());
+
+        // passes forced on the container only: the children keep their results
+        counter.reset();
+        start = System.nanoTime();
+        for (int i = 0; i < PASSES; i++) {
+            layout.forceLayout();
+            pass(layout, widthSpec, heightSpec);
+        }
+        report(name, "forced", counter, System.nanoTime() - start);
+        assertEquals(0, counter.measures());
+        assertEquals(0, counter.layouts());
+
+        // passes while the content is pulled: only the offset changes
+        final long downTime = TestGestures.press(layout, 10, 200, 10);
+        // moves are applied on the next frame
+        ShadowLooper.idleMainLooper(GestureTraceReplayer.FRAME_MILLIS);
+        counter.reset();
+        int offsetChanges = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < PASSES; i++) {
+            final int offset = layout.getCurrentOffset();
+            pullBackAndForth(layout, downTime, i);
+            ShadowLooper.idleMainLooper(GestureTraceReplayer.FRAME_MILLIS);
+            pass(layout, widthSpec, heightSpec);
+            if (layout.getCurrentOffset() != offset) {
+                offsetChanges++;
+            }
+        }
+        report(name, "offset", counter, System.nanoTime() - start);
+        assertTrue(layout.getCurrentOffset() > 0);
+        assertEquals(PASSES, offsetChanges);
+        assertEquals(0, counter.measures());
+        assertEquals(0, counter.layouts());
+        TestGestures.up(layout, downTime, 200);
+
+        // passes where the content asks for a new layout every time
+        counter.reset();
+        start = System.nanoTime();
+        for (int i = 0; i < PASSES; i++) {
+            content.requestLayout();
+            pass(layout, widthSpec, heightSpec);
+        }
+        report(name, "relayout", counter, System.nanoTime() - start);
+        assertEquals(PASSES, counter.measures());
+        assertEquals(PASSES, counter.layouts());
+    }
+
+    /**
+     * Moves the pointer of a pull by 10px up or down, so that every frame
+     * changes the offset without bringing the content back to rest.
+     */
+    private static void pullBackAndForth(View layout, long downTime, int frame) {
+        TestGestures.move(layout, downTime, 200, frame % 2 == 0 ? 400 : 390, 1);
+    }
+
+    /**
+     * Times frames of a pull, each a move, a layout pass and a draw, with the
+     * content moved in {@code mode}.
+     */
+    private void benchmarkFrames(String name, View content, int mode) {
+        final Counter counter = (Counter) content;
+        final BackViewLayout layout = new BackViewLayout(context);
+        layout.setOffsetMode(mode);
+        layout.addView(content, new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        final int widthSpec = View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY);
+        final int heightSpec = View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY);
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        pass(layout, widthSpec, heightSpec);
+
+        final long downTime = TestGestures.press(layout, 10, 200, 10);
+        // moves are applied on the next frame
+        ShadowLooper.idleMainLooper(GestureTraceReplayer.FRAME_MILLIS);
+        counter.reset();
+        final long start = System.nanoTime();
+        for (int i = 0; i < PASSES; i++) {
+            pullBackAndForth(layout, downTime, i);
+            ShadowLooper.idleMainLooper(GestureTraceReplayer.FRAME_MILLIS);
+            pass(layout, widthSpec, heightSpec);
+            layout.draw(canvas);
+        }
+        report(name, OFFSET_MODE_NAMES[mode], counter, System.nanoTime() - start);
+        assertEquals(0, counter.measures());
+        assertEquals(0, counter.layouts());
+        assertTrue(layout.getCurrentOffset() > 0);
+        // only the layout mode moves the bounds of the content
+        assertEquals(mode == BackViewLayout.OFFSET_LAYOUT ? layout.getCurrentOffset() : 0, content.getTop());
+        assertEquals(mode == BackViewLayout.OFFSET_TRANSLATION ? layout.getCurrentOffset() : 0,
+                content.getTranslationY(), 0);
+        TestGestures.up(layout, downTime, 200);
+    }
+
+    private static void pass(BackViewLayout layout, int widthSpec, int heightSpec) {
+        layout.measure(widthSpec, heightSpec);
+        layout.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private static void report(String name, String phase, Counter counter, long nanos) {
+        System.out.println(String.format("%-10s %-9s measures=%d layouts=%d %.1fus/pass",
+                name, phase, counter.measures(), counter.layouts(), nanos / 1000f / PASSES));
+    }
+
+    private interface Counter {
+        int measures();
+
+        int layouts();
+
+        void reset();
+    }
+
+    private static class CountingListView extends ListView implements Counter {
+        private int measures;
+        private int layouts;
+
+        CountingListView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            measures++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int l, int t, int r, int b) {
+            layouts++;
+            super.onLayout(changed, l, t, r, b);
+        }
+
+        @Override
+        public int measures() {
+            return measures;
+        }
+
+        @Override
+        public int layouts() {
+            return layouts;
+        }
+
+        @Override
+        public void reset() {
+            measures = layouts = 0;
+        }
+    }
+
+    private static class CountingScrollView extends ScrollView implements Counter {
+        private int measures;
+        private int layouts;
+
+        CountingScrollView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            measures++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int l, int t, int r, int b) {
+            layouts++;
+            super.onLayout(changed, l, t, r, b);
+        }
+
+        @Override
+        public int measures() {
+            return measures;
+        }
+
+        @Override
+        public int layouts() {
+            return layouts;
+        }
+
+        @Override
+        public void reset() {
+            measures = layouts = 0;
+        }
+    }
+
+    private static class CountingWebView extends WebView implements Counter {
+        private int measures;
+        private int layouts;
+
+        CountingWebView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            measures++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            // the shadowed WebView does not measure itself
+            setMeasuredDimension(getDefaultSize(0, widthMeasureSpec), getDefaultSize(0, heightMeasureSpec));
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int l, int t, int r, int b) {
+            layouts++;
+            super.onLayout(changed, l, t, r, b);
+        }
+
+        @Override
+        public int measures() {
+            return measures;
+        }
+
+        @Override
+        public int layouts() {
+            return layouts;
+        }
+
+        @Override
+        public void reset() {
+            measures = layouts = 0;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package me.ele.backviewlayout;
+
+import java.util.ArrayList;
+
+/**
+ * Runs frame callbacks only when {@link #doFrame} is called, without going
+ * through a Handler. Does not allocate once its lists have grown.
+ */
+final class ManualChoreographer extends ChoreographerCompat {
+
+    static final long FRAME_NANOS = 16000000L;
+
+    private ArrayList<FrameCallback> mPending = new ArrayList<FrameCallback>();
+    private ArrayList<FrameCallback> mRunning = new ArrayList<FrameCallback>();
+    private long mFrameTimeNanos;
+
+    @Override
+    public void postFrameCallback(FrameCallback callback) {
+        mPending.add(callback);
+    }
+
+    @Override
+    public void removeFrameCallback(FrameCallback callback) {
+        mPending.remove(callback);
+    }
+
+    boolean hasPendingFrame() {
+        return !mPending.isEmpty();
+    }
+
+    int getPendingCount() {
+        return mPending.size();
+    }
+
+    /**
+     * Lets {@code count} frames pass without running any callbacks, as if the
+     * UI thread was busy.
+     */
+    void skipFrames(int count) {
+        mFrameTimeNanos += count * FRAME_NANOS;
+    }
+
+    /**
+     * Runs the callbacks posted before this frame; the ones they post run on
+     * the next.
+     */
+    void doFrame() {
+        mFrameTimeNanos += FRAME_NANOS;
+        final ArrayList<FrameCallback> running = mPending;
+        mPending = mRunning;
+        mRunning = running;
+        for (int i = 0; i < running.size(); i++) {
+            running.get(i).doFrame(mFrameTimeNanos);
+        }
+        running.clear();
+    }
+}
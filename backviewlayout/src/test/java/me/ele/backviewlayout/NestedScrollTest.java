@@ -0,0 +1,133 @@
+package me.ele.backviewlayout;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Nested scrolls the layout does not take go on to a scrolling parent, as
+ * they would without the layout in between.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class NestedScrollTest {
+
+    private ScrollingParent parent;
+    private BackViewLayout layout;
+    private View child;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        parent = new ScrollingParent(activity);
+        layout = new BackViewLayout(activity);
+        child = new View(activity);
+        child.setNestedScrollingEnabled(true);
+        layout.addView(child, new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        parent.addView(layout, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        activity.setContentView(parent);
+        parent.measure(View.MeasureSpec.makeMeasureSpec(CountingBackViewLayout.WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(CountingBackViewLayout.HEIGHT, View.MeasureSpec.EXACTLY));
+        parent.layout(0, 0, CountingBackViewLayout.WIDTH, CountingBackViewLayout.HEIGHT);
+        assertTrue(child.startNestedScroll(View.SCROLL_AXIS_VERTICAL));
+    }
+
+    @Test
+    public void parentScrollsAlong() {
+        assertTrue(parent.started);
+        child.dispatchNestedScroll(0, 0, 0, -50, null);
+        assertEquals(-50, parent.dyUnconsumed);
+        assertTrue(layout.getCurrentOffset() > 0);
+
+        child.stopNestedScroll();
+        assertFalse(parent.started);
+    }
+
+    @Test
+    public void parentTakesWhatClosingLeaves() {
+        child.dispatchNestedScroll(0, 0, 0, -50, null);
+        final int offset = layout.getCurrentOffset();
+        parent.preScrollConsumed = 30;
+        final int[] consumed = new int[2];
+        assertTrue(child.dispatchNestedPreScroll(0, offset + 30, consumed, null));
+        assertEquals(offset + 30, consumed[1]);
+        assertEquals(30, parent.dyPreScroll);
+        assertEquals(0, layout.getCurrentOffset());
+    }
+
+    @Test
+    public void flingAtRestGoesToParent() {
+        parent.preFlingConsumed = true;
+        assertTrue(child.dispatchNestedPreFling(0, 1000));
+        assertEquals(1, parent.preFlings);
+
+        parent.preFlingConsumed = false;
+        assertFalse(child.dispatchNestedPreFling(0, 1000));
+    }
+
+    @Test
+    public void flingWhilePulledReleases() {
+        child.dispatchNestedScroll(0, 0, 0, -50, null);
+        // taken by the layout to release the reveal
+        assertTrue(child.dispatchNestedPreFling(0, 1000));
+        assertEquals(0, parent.preFlings);
+    }
+
+    private static class ScrollingParent extends FrameLayout {
+
+        boolean started;
+        int dyUnconsumed;
+        int dyPreScroll;
+        int preScrollConsumed;
+        int preFlings;
+        boolean preFlingConsumed;
+
+        ScrollingParent(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+            started = true;
+            return true;
+        }
+
+        @Override
+        public void onStopNestedScroll(View child) {
+            super.onStopNestedScroll(child);
+            started = false;
+        }
+
+        @Override
+        public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+            dyPreScroll = dy;
+            consumed[1] = Math.min(dy, preScrollConsumed);
+        }
+
+        @Override
+        public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+            this.dyUnconsumed = dyUnconsumed;
+        }
+
+        @Override
+        public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+            preFlings++;
+            return preFlingConsumed;
+        }
+    }
+}
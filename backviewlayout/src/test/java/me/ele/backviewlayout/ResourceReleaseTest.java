@@ -0,0 +1,147 @@
+package me.ele.backviewlayout;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A hidden layout snaps to rest and stops its frames, a layout at rest gives
+ * up its back view when memory runs low, and a detached layout drops the back
+ * view inflated for it in the background.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ResourceReleaseTest {
+
+    private final ManualChoreographer clock = new ManualChoreographer();
+    private Activity activity;
+    private CountingBackViewLayout layout;
+
+    @Before
+    public void setUp() {
+        ChoreographerCompat.setInstance(clock);
+        ShadowLooper.pauseMainLooper();
+        activity = Robolectric.setupActivity(Activity.class);
+        // the window is attached by its first traversal
+        ShadowLooper.runUiThreadTasks();
+        layout = CountingBackViewLayout.attach(activity);
+    }
+
+    @After
+    public void tearDown() {
+        ChoreographerCompat.setInstance(null);
+    }
+
+    @Test
+    public void hiddenLayoutSnapsToRest() {
+        TestGestures.press(layout, 10, 200, 10);
+        clock.doFrame();
+        assertTrue(layout.getCurrentOffset() > 0);
+
+        layout.setVisibility(View.INVISIBLE);
+        assertEquals(0, layout.getCurrentOffset());
+        assertEquals(BackViewLayout.STATE_IDLE, layout.getRevealState());
+        assertFalse(clock.hasPendingFrame());
+    }
+
+    @Test
+    public void hiddenWindowStopsReturn() {
+        final long downTime = TestGestures.press(layout, 10, 200, 10);
+        clock.doFrame();
+        TestGestures.up(layout, downTime, 200);
+        // the return starts from a message
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(BackViewLayout.STATE_RETURNING, layout.getRevealState());
+
+        layout.dispatchWindowVisibilityChanged(View.GONE);
+        assertEquals(0, layout.getCurrentOffset());
+        assertEquals(BackViewLayout.STATE_IDLE, layout.getRevealState());
+        assertFalse(clock.hasPendingFrame());
+    }
+
+    @Test
+    public void trimMemoryReleasesBackView() {
+        assertEquals(2, layout.getChildCount());
+        RuntimeEnvironment.application.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(1, layout.getChildCount());
+
+        TestGestures.press(layout, 10, 200, 10);
+        clock.doFrame();
+        assertTrue(layout.getCurrentOffset() > 0);
+        assertEquals(2, layout.getChildCount());
+        // not while it is shown
+        RuntimeEnvironment.application.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        assertEquals(2, layout.getChildCount());
+    }
+
+    @Test
+    public void detachedLayoutDropsBackgroundInflation() throws InterruptedException {
+        layout.setBackViewInflation(BackViewLayout.INFLATE_ASYNC);
+        RuntimeEnvironment.application.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        relayout();
+        activity.setContentView(new View(activity));
+        awaitInflation();
+        assertEquals(1, layout.getChildCount());
+
+        activity.setContentView(layout);
+        relayout();
+        awaitInflation();
+        assertEquals(2, layout.getChildCount());
+    }
+
+    @Test
+    public void inflatesOnBackgroundDaemonThread() throws InterruptedException {
+        final Thread[] thread = new Thread[1];
+        final CountDownLatch ran = new CountDownLatch(1);
+        BackViewLayout.getInflateExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                thread[0] = Thread.currentThread();
+                ran.countDown();
+            }
+        });
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(thread[0].isDaemon());
+        assertEquals("BackViewLayout-inflate", thread[0].getName());
+    }
+
+    private void relayout() {
+        layout.requestLayout();
+        layout.measure(View.MeasureSpec.makeMeasureSpec(CountingBackViewLayout.WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(CountingBackViewLayout.HEIGHT, View.MeasureSpec.EXACTLY));
+        layout.layout(0, 0, CountingBackViewLayout.WIDTH, CountingBackViewLayout.HEIGHT);
+    }
+
+    /**
+     * Waits for the inflation thread to finish what was queued, then runs
+     * what it posted.
+     */
+    private static void awaitInflation() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        BackViewLayout.getInflateExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        ShadowLooper.runUiThreadTasks();
+    }
+}
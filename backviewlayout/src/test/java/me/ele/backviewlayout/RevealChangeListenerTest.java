@@ -0,0 +1,80 @@
+package me.ele.backviewlayout;
+
+import android.app.Activity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reveal listeners are called once per frame with the latest state. Robolectric
+ * does not draw, so the pre-draw pass is dispatched by hand after each frame.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RevealChangeListenerTest {
+
+    @Test
+    public void coalescesOneFrameOfMoves() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        final CountingBackViewLayout layout = CountingBackViewLayout.attach(activity);
+        final RecordingListener listener = new RecordingListener();
+        layout.addOnRevealChangeListener(listener);
+
+        final long downTime = TestGestures.press(layout, 10, 200, 10);
+        ShadowLooper.idleMainLooper(GestureTraceReplayer.FRAME_MILLIS);
+        preDraw(layout);
+        listener.calls = 0;
+        TestGestures.move(layout, downTime, 200, 260, 6);
+        ShadowLooper.idleMainLooper(GestureTraceReplayer.FRAME_MILLIS);
+        preDraw(layout);
+        assertEquals(1, listener.calls);
+        assertEquals(layout.getCurrentOffset(), listener.offset);
+        assertTrue(listener.offset > 0);
+        assertTrue(listener.progress > 0);
+        assertEquals(BackViewLayout.STATE_DRAGGING, listener.state);
+
+        // nothing changed since
+        preDraw(layout);
+        assertEquals(1, listener.calls);
+
+        TestGestures.up(layout, downTime, 260);
+        ShadowLooper.idleMainLooper(2000);
+        preDraw(layout);
+        assertEquals(2, listener.calls);
+        assertEquals(0, listener.offset);
+        assertEquals(0, listener.progress, 0);
+        assertEquals(BackViewLayout.STATE_IDLE, listener.state);
+
+        layout.removeOnRevealChangeListener(listener);
+        TestGestures.drag(layout, 10, 200, 6);
+        preDraw(layout);
+        assertEquals(2, listener.calls);
+    }
+
+    private static void preDraw(BackViewLayout layout) {
+        layout.getViewTreeObserver().dispatchOnPreDraw();
+    }
+
+    private static class RecordingListener implements BackViewLayout.OnRevealChangeListener {
+
+        int calls;
+        int offset;
+        float progress;
+        int state;
+
+        @Override
+        public void onRevealChanged(BackViewLayout layout, int offset, float progress, int state) {
+            calls++;
+            this.offset = offset;
+            this.progress = progress;
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package me.ele.backviewlayout;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pulls from each edge move the content away from that edge only.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RevealEdgeTest {
+
+    private CountingBackViewLayout layout;
+    private View content;
+    private long downTime;
+    private long eventTime;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        layout = CountingBackViewLayout.attach(activity);
+        content = layout.getChildAt(layout.getChildCount() - 1);
+    }
+
+    @Test
+    public void pullsUpFromBottom() {
+        layout.setRevealEdges(BackViewLayout.EDGE_BOTTOM);
+        hold(360, 900, 360, 600);
+        assertTrue(layout.getCurrentOffset() > 0);
+        assertEquals(-layout.getCurrentOffset(), content.getTop());
+        assertEquals(0, content.getLeft());
+        release(360, 600);
+        assertEquals(0, layout.getCurrentOffset());
+        assertEquals(0, content.getTop());
+    }
+
+    @Test
+    public void picksEdgeFromDirection() {
+        layout.setRevealEdges(BackViewLayout.EDGE_TOP | BackViewLayout.EDGE_START | BackViewLayout.EDGE_END);
+        hold(100, 600, 400, 610);
+        assertTrue(content.getLeft() > 0);
+        assertEquals(0, content.getTop());
+        release(400, 610);
+        assertEquals(0, content.getLeft());
+
+        hold(600, 600, 300, 590);
+        assertTrue(content.getLeft() < 0);
+        assertEquals(0, content.getTop());
+        release(300, 590);
+        assertEquals(0, content.getLeft());
+
+        hold(360, 100, 370, 400);
+        assertTrue(content.getTop() > 0);
+        assertEquals(0, content.getLeft());
+        release(370, 400);
+        assertEquals(0, content.getTop());
+    }
+
+    @Test
+    public void ignoresDisabledEdges() {
+        hold(360, 900, 360, 600);
+        assertEquals(0, layout.getCurrentOffset());
+        release(360, 600);
+        hold(100, 600, 400, 600);
+        assertEquals(0, layout.getCurrentOffset());
+        release(400, 600);
+    }
+
+    private void hold(float fromX, float fromY, float toX, float toY) {
+        downTime = eventTime = SystemClock.uptimeMillis();
+        TestGestures.dispatch(layout, downTime, eventTime, MotionEvent.ACTION_DOWN, fromX, fromY);
+        for (int i = 1; i <= 20; i++) {
+            eventTime += TestGestures.MOVE_INTERVAL_MILLIS;
+            TestGestures.dispatch(layout, downTime, eventTime, MotionEvent.ACTION_MOVE,
+                    fromX + (toX - fromX) * i / 20, fromY + (toY - fromY) * i / 20);
+        }
+        ShadowLooper.idleMainLooper(GestureTraceReplayer.FRAME_MILLIS);
+    }
+
+    private void release(float x, float y) {
+        TestGestures.dispatch(layout, downTime, eventTime, MotionEvent.ACTION_UP, x, y);
+        ShadowLooper.idleMainLooper(2000);
+    }
+}
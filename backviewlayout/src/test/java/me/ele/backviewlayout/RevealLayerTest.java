@@ -0,0 +1,100 @@
+package me.ele.backviewlayout;
+
+import android.app.Activity;
+import android.content.Context;
+import android.util.AttributeSet;
+import android.util.Xml;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.xmlpull.v1.XmlPullParser;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reveal layers are read from back view layouts and follow the pull through
+ * view properties only.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RevealLayerTest {
+
+    @Test
+    public void followsPullWithoutLayout() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        final CountingBackViewLayout layout = CountingBackViewLayout.attach(activity);
+
+        final View logo = new View(activity);
+        final RevealLayer layer = new RevealLayer(logo);
+        layer.setAlpha(0, 1);
+        layer.setTranslationY(-100, 0);
+        layout.addRevealLayer(layer);
+        assertEquals(0, logo.getAlpha(), 0);
+        assertEquals(-100, logo.getTranslationY(), 0);
+
+        final long downTime = TestGestures.press(layout, 10, 200, 10);
+        ShadowLooper.idleMainLooper(GestureTraceReplayer.FRAME_MILLIS);
+        layout.resetCounts();
+        TestGestures.move(layout, downTime, 200, 260, 6);
+        ShadowLooper.idleMainLooper(GestureTraceReplayer.FRAME_MILLIS);
+        assertTrue(layout.getCurrentOffset() > 0);
+        assertTrue(logo.getAlpha() > 0);
+        assertTrue(logo.getTranslationY() > -100);
+        assertEquals(0, layout.measures);
+        assertEquals(0, layout.layouts);
+
+        TestGestures.up(layout, downTime, 260);
+        ShadowLooper.idleMainLooper(2000);
+        assertEquals(0, layout.getCurrentOffset());
+        assertEquals(0, logo.getAlpha(), 0);
+    }
+
+    @Test
+    public void readsLayerAttributesBehindFactory2() throws Exception {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        final LayoutInflater inflater = LayoutInflater.from(activity).cloneInContext(activity);
+        // creates every TextView itself, as AppCompat does
+        inflater.setFactory2(new LayoutInflater.Factory2() {
+            @Override
+            public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
+                return "TextView".equals(name) ? new TextView(context, attrs) : null;
+            }
+
+            @Override
+            public View onCreateView(String name, Context context, AttributeSet attrs) {
+                return onCreateView(null, name, context, attrs);
+            }
+        });
+
+        // Robolectric resolves attributes of a plain parser by package, not res-auto
+        final XmlPullParser parser = Xml.newPullParser();
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+        parser.setInput(new StringReader("<FrameLayout"
+                + " xmlns:android=\"http://schemas.android.com/apk/res/android\""
+                + " xmlns:app=\"http://schemas.android.com/apk/res/me.ele.backviewlayout\""
+                + " android:layout_width=\"match_parent\" android:layout_height=\"wrap_content\">"
+                + "<TextView android:layout_width=\"wrap_content\" android:layout_height=\"wrap_content\""
+                + " app:layerAlphaFrom=\"0\" app:layerAlphaTo=\"1\" />"
+                + "<View android:layout_width=\"wrap_content\" android:layout_height=\"wrap_content\" />"
+                + "</FrameLayout>"));
+        final ViewGroup backView = (ViewGroup) RevealLayerFactory.wrap(inflater).inflate(parser, null);
+
+        final View text = backView.getChildAt(0);
+        assertTrue(text instanceof TextView);
+        assertNotNull(RevealLayerFactory.getLayer(text));
+        assertNull(RevealLayerFactory.getLayer(backView.getChildAt(1)));
+    }
+}
@@ -0,0 +1,31 @@
+package me.ele.backviewlayout;
+
+import android.content.Context;
+import android.view.accessibility.AccessibilityManager;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowAccessibilityManager;
+
+/**
+ * Hands out one {@link AccessibilityManager} like the platform does. The
+ * stock shadow builds a new one, with its service, on every lookup, and
+ * {@code View} looks it up on each offset change.
+ */
+@Implements(AccessibilityManager.class)
+public class SingletonAccessibilityManagerShadow extends ShadowAccessibilityManager {
+
+    private static AccessibilityManager sInstance;
+
+    @Implementation
+    public static AccessibilityManager getInstance(Context context) throws Exception {
+        if (sInstance == null) {
+            sInstance = ShadowAccessibilityManager.getInstance(context);
+        }
+        return sInstance;
+    }
+
+    static void reset() {
+        sInstance = null;
+    }
+}
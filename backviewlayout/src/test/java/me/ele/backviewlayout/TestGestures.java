@@ -0,0 +1,59 @@
+package me.ele.backviewlayout;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Feeds synthetic single-pointer gestures into a view.
+ */
+final class TestGestures {
+
+    static final long MOVE_INTERVAL_MILLIS = 8;
+
+    private TestGestures() {
+
+    }
+
+    /**
+     * Presses at {@code fromY}, moves to {@code toY} in {@code steps} equal moves
+     * and keeps the pointer down.
+     *
+     * @return the down time of the gesture, for {@link #up}
+     */
+    static long press(View view, float fromY, float toY, int steps) {
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(view, downTime, downTime, MotionEvent.ACTION_DOWN, fromY);
+        move(view, downTime, fromY, toY, steps);
+        return downTime;
+    }
+
+    static void move(View view, long downTime, float fromY, float toY, int steps) {
+        long eventTime = SystemClock.uptimeMillis();
+        for (int i = 1; i <= steps; i++) {
+            eventTime += MOVE_INTERVAL_MILLIS;
+            dispatch(view, downTime, eventTime, MotionEvent.ACTION_MOVE, fromY + (toY - fromY) * i / steps);
+        }
+    }
+
+    static void up(View view, long downTime, float y) {
+        dispatch(view, downTime, SystemClock.uptimeMillis(), MotionEvent.ACTION_UP, y);
+    }
+
+    /**
+     * A full press, move and release.
+     */
+    static void drag(View view, float fromY, float toY, int steps) {
+        up(view, press(view, fromY, toY, steps), toY);
+    }
+
+    static void dispatch(View view, long downTime, long eventTime, int action, float y) {
+        dispatch(view, downTime, eventTime, action, view.getWidth() / 2f, y);
+    }
+
+    static void dispatch(View view, long downTime, long eventTime, int action, float x, float y) {
+        final MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, x, y, 0);
+        view.dispatchTouchEvent(event);
+        event.recycle();
+    }
+}